@@ -0,0 +1,68 @@
+package collisioninfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CollisionData holds the lines of one of the collision data sets, read once per
+ * benchmark trial. The data set is selected by the dataFile parameter, by default
+ * the one, two and three year data sets are benchmarked one after another, so the
+ * results show how the measured code scales with the size of the data. Other files
+ * can be given on the command line, for example -p dataFile=a.csv,b.csv
+ * @author Aaron Walker
+ *
+ */
+@State(Scope.Benchmark)
+public class CollisionData {
+
+	/** Number of entries on a complete line of the data files. */
+	public static final int NUM_OF_ENTRIES = 21;
+
+	@Param({"data/collisions-1-year.csv", "data/collisions-2-years.csv", "data/collisions-3-years.csv"})
+	public String dataFile;
+
+	/** All lines of the data file, including the header. */
+	public String [] lines;
+
+	@Setup
+	public void readLines() throws IOException {
+		File file = new File(dataFile);
+		if (!file.canRead())
+			throw new IOException("Cannot read data file " + file.getAbsolutePath() 
+					+ ", select the data sets with -p dataFile=...");
+		ArrayList<String> result = new ArrayList<String>();
+		Scanner fin = new Scanner(file);
+		while (fin.hasNextLine())
+			result.add(fin.nextLine());
+		fin.close();
+		lines = result.toArray(new String [result.size()]);
+	}
+
+	/**
+	 * Parses all complete lines into Collision objects, skipping the ones that are
+	 * not valid records.
+	 * @return the parsed collisions
+	 */
+	public Collision [] parseCollisions() {
+		ArrayList<Collision> result = new ArrayList<Collision>();
+		CsvTokenizer words = new CsvTokenizer();
+		for (String line : lines) {
+			if (words.tokenize(line) != NUM_OF_ENTRIES)
+				continue;
+			try {
+				result.add(new Collision(words));
+			}
+			catch (IllegalArgumentException ex) {
+				//skip the header and invalid records
+			}
+		}
+		return result.toArray(new Collision [result.size()]);
+	}
+}
@@ -0,0 +1,82 @@
+package collisioninfo;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of splitting the lines of a data set and of constructing Collision
+ * objects from them. One operation is a pass over all lines of the data set.
+ * @author Aaron Walker
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+
+	/**
+	 * CollisionInfo.split() on every line.
+	 */
+	@Benchmark
+	public void split(CollisionData data, Blackhole bh) {
+		for (String line : data.lines)
+			bh.consume(CollisionInfo.split(line));
+	}
+
+	/**
+	 * CsvTokenizer.tokenize() on every line, the replacement of split() used by main().
+	 */
+	@Benchmark
+	public void tokenize(CollisionData data, Blackhole bh) {
+		CsvTokenizer words = new CsvTokenizer();
+		for (String line : data.lines)
+			bh.consume(words.tokenize(line));
+	}
+
+	/**
+	 * Collision construction from the lists produced by split().
+	 */
+	@Benchmark
+	public void constructFromSplit(CollisionData data, Blackhole bh) {
+		for (String line : data.lines) {
+			ArrayList<String> entries = CollisionInfo.split(line);
+			if (entries.size() != CollisionData.NUM_OF_ENTRIES)
+				continue;
+			try {
+				bh.consume(new Collision(entries));
+			}
+			catch (IllegalArgumentException ex) {
+				bh.consume(ex);
+			}
+		}
+	}
+
+	/**
+	 * Collision construction from a CsvTokenizer, the way main() parses the input.
+	 */
+	@Benchmark
+	public void constructFromTokenizer(CollisionData data, Blackhole bh) {
+		CsvTokenizer words = new CsvTokenizer();
+		for (String line : data.lines) {
+			if (words.tokenize(line) != CollisionData.NUM_OF_ENTRIES)
+				continue;
+			try {
+				bh.consume(new Collision(words));
+			}
+			catch (IllegalArgumentException ex) {
+				bh.consume(ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package collisioninfo;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the six queries printed by CollisionInfo, each run on its own,
+ * and of computing all of them at once with getReports(), sequentially and in
+ * parallel. The report cache is turned off except in cachedReports.
+ * @author Aaron Walker
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+
+	/* number of zip codes in each ranking, the same as in CollisionInfo */
+	private static final int K = 3;
+
+	/**
+	 * The CollisionList object holding the data set, built once per trial.
+	 */
+	@State(Scope.Benchmark)
+	public static class LoadedList {
+		CollisionList list;
+		EnumSet<ReportType> allTasks;
+		//the zip code with the most collisions, used by the date range queries
+		String busiestZip;
+
+		@Setup
+		public void load(CollisionData data) {
+			list = new CollisionList();
+			//measure the computation, not the cache
+			list.setReportCacheSize(0);
+			for (Collision col : data.parseCollisions())
+				list.add(col);
+			//the lines are no longer needed
+			data.lines = null;
+			allTasks = EnumSet.of(ReportType.MOST_COLLISIONS, ReportType.LEAST_COLLISIONS,
+					ReportType.MOST_PERSON_INCIDENTS, ReportType.MOST_CYCLIST_INCIDENTS,
+					ReportType.VEHICLE_TYPE_STATS, ReportType.HOURLY_STATS);
+			int most = -1;
+			for (ZipCodeList zipList : list.zipCodeLists()) {
+				if (zipList.getTotalNumOfCollisions() > most) {
+					most = zipList.getTotalNumOfCollisions();
+					busiestZip = zipList.getZip();
+				}
+			}
+			//build the date index outside of the measurement
+			list.getTotals(busiestZip, "1/1/2000", "1/1/2000");
+		}
+	}
+
+	/**
+	 * The CollisionList object holding the data set, with parallel queries enabled.
+	 */
+	@State(Scope.Benchmark)
+	public static class ParallelList extends LoadedList {
+
+		@Setup
+		public void enableParallelQueries() {
+			list.setParallelQueries(ForkJoinPool.commonPool(), CollisionList.DEFAULT_PARALLEL_THRESHOLD);
+		}
+	}
+
+	/**
+	 * The CollisionList object holding the data set, with the report cache enabled.
+	 */
+	@State(Scope.Benchmark)
+	public static class CachedList extends LoadedList {
+
+		@Setup
+		public void enableReportCache() {
+			list.setReportCacheSize(CollisionList.DEFAULT_REPORT_CACHE_SIZE);
+		}
+	}
+
+	@Benchmark
+	public String mostCollisions(LoadedList loaded) {
+		return loaded.list.getZipCodesWithMostCollisions(K);
+	}
+
+	@Benchmark
+	public String leastCollisions(LoadedList loaded) {
+		return loaded.list.getZipCodesWithLeastCollisions(K);
+	}
+
+	@Benchmark
+	public String mostPersonIncidents(LoadedList loaded) {
+		return loaded.list.getZipCodesWithMostPersonIncidents(K);
+	}
+
+	@Benchmark
+	public String mostCyclistIncidents(LoadedList loaded) {
+		return loaded.list.getZipCodesWithMostCyclistIncidents(K);
+	}
+
+	@Benchmark
+	public String vehicleTypeStats(LoadedList loaded) {
+		return loaded.list.getVehicleTypeStats();
+	}
+
+	@Benchmark
+	public String hourlyStats(LoadedList loaded) {
+		return loaded.list.getHourlyStats();
+	}
+
+	/**
+	 * Totals of the busiest zip code within a year, looked up in its date index.
+	 */
+	@Benchmark
+	public DateRangeTotals dateRangeTotals(LoadedList loaded) {
+		return loaded.list.getTotals(loaded.busiestZip, "07/01/2013", "06/30/2014");
+	}
+
+	/**
+	 * Number of taxi collisions of the busiest zip code within a year.
+	 */
+	@Benchmark
+	public int dateRangeVehicleType(LoadedList loaded) {
+		return loaded.list.getNumOfCollisions(loaded.busiestZip, "taxi", "07/01/2013", "06/30/2014");
+	}
+
+	/**
+	 * Number of collisions within a box of about 2 by 2 km, counted in the spatial grid.
+	 */
+	@Benchmark
+	public int boxCount(LoadedList loaded) {
+		return loaded.list.getNumOfCollisionsInBox(40.70, -74.02, 40.72, -74.00);
+	}
+
+	/**
+	 * Number of collisions within 1 km of a point, counted in the spatial grid.
+	 */
+	@Benchmark
+	public int radiusCount(LoadedList loaded) {
+		return loaded.list.getNumOfCollisionsWithin(40.7128, -74.0060, 1000);
+	}
+
+	/**
+	 * Cells of the spatial grid with the most collisions.
+	 */
+	@Benchmark
+	public String densestCells(LoadedList loaded) {
+		return loaded.list.getDensestCells(K);
+	}
+
+	/**
+	 * All six queries in a single pass, the way main() computes them.
+	 */
+	@Benchmark
+	public EnumMap<ReportType, String> allReports(LoadedList loaded) {
+		return loaded.list.getReports(loaded.allTasks, K);
+	}
+
+	/**
+	 * All six queries computed by fork/join tasks over parts of the zip codes.
+	 */
+	@Benchmark
+	public EnumMap<ReportType, String> allReportsParallel(ParallelList loaded) {
+		return loaded.list.getReports(loaded.allTasks, K);
+	}
+
+	/**
+	 * All six queries asked for again on unchanged data, found in the report cache.
+	 */
+	@Benchmark
+	public EnumMap<ReportType, String> cachedReports(CachedList loaded) {
+		return loaded.list.getReports(loaded.allTasks, K);
+	}
+}
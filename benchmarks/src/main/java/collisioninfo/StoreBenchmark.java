@@ -0,0 +1,54 @@
+package collisioninfo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of storing parsed collisions. One operation adds all collisions of a
+ * data set to an empty CollisionList object.
+ * @author Aaron Walker
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StoreBenchmark {
+
+	/**
+	 * The collisions of the data set, parsed once per trial.
+	 */
+	@State(Scope.Benchmark)
+	public static class ParsedCollisions {
+		Collision [] collisions;
+
+		@Setup
+		public void parse(CollisionData data) {
+			collisions = data.parseCollisions();
+			//the lines are no longer needed
+			data.lines = null;
+		}
+	}
+
+	/**
+	 * CollisionList.add() of every collision.
+	 */
+	@Benchmark
+	public CollisionList add(ParsedCollisions parsed) {
+		CollisionList list = new CollisionList();
+		for (Collision col : parsed.collisions)
+			list.add(col);
+		return list;
+	}
+}
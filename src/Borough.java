@@ -0,0 +1,71 @@
+/**
+ * Enumerator listing the boroughs of NYC. Collisions whose borough is missing or
+ * not recognized belong to UNKNOWN. 
+ * @author Aaron Walker
+ *
+ */
+enum Borough { 
+	BRONX("BRONX"), BROOKLYN("BROOKLYN"), MANHATTAN("MANHATTAN"), QUEENS("QUEENS"), 
+	STATEN_ISLAND("STATEN ISLAND"), UNKNOWN("");
+
+	private static final Borough [] VALUES = values();
+
+	private final String name;
+
+	private Borough ( String name ) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of this borough, as it appears in the collision data. 
+	 * @return the name, an empty string for UNKNOWN
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the borough with the given name. The name is matched without regard 
+	 * to case and surrounding white space, without creating any object. 
+	 * @param name the name of the borough, as it appears in the collision data
+	 * @return the borough, or UNKNOWN if the name is not the name of a borough
+	 */
+	static Borough of ( CharSequence name ) {
+		int from = 0;
+		int to = name.length();
+		while (from < to && name.charAt(from) <= ' ') 
+			from++;
+		while (to > from && name.charAt(to - 1) <= ' ') 
+			to--;
+		for (Borough borough : VALUES) {
+			if (borough != UNKNOWN && borough.matches(name, from, to)) 
+				return borough;
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Returns the borough with the given ordinal, the inverse of ordinal(). 
+	 * @param ordinal the ordinal of the borough
+	 * @return the borough
+	 * @throws IndexOutOfBoundsException if there is no borough with this ordinal
+	 */
+	static Borough ofOrdinal ( int ordinal ) throws IndexOutOfBoundsException {
+		return VALUES[ordinal];
+	}
+
+	/*
+	 * Returns true if name.subSequence(from, to) equals the name of this borough, 
+	 * ignoring case. 
+	 */
+	private boolean matches ( CharSequence name, int from, int to ) {
+		if (to - from != this.name.length()) 
+			return false;
+		for (int i = 0; i < this.name.length(); i++) {
+			char c = name.charAt(from + i);
+			if (c != this.name.charAt(i) && Character.toUpperCase(c) != this.name.charAt(i)) 
+				return false;
+		}
+		return true;
+	}
+}
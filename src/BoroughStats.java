@@ -0,0 +1,173 @@
+/**
+ * BoroughStats keeps track of the collisions that occurred in one borough: the total
+ * number of collisions, injuries and fatalities, the number of collisions for every
+ * minute of the day and for every vehicle type. The totals are updated as collisions
+ * are added, the same way ZipCodeList keeps the totals of a zip code, so they are
+ * available without visiting the collisions. The collisions themselves are not kept.
+ * @author Aaron Walker
+ *
+ */
+public class BoroughStats {
+
+	private final Borough borough;
+
+	private int totalNumOfCollisions;
+	private int totalNumOfPersonsInjured;
+	private int totalNumOfPersonsKilled;
+	private int totalNumOfCyclistsInjured;
+	private int totalNumOfCyclistsKilled;
+	private int totalNumOfPedestriansInjured;
+	private int totalNumOfPedestriansKilled;
+	private int totalNumOfMotoristsInjured;
+	private int totalNumOfMotoristsKilled;
+	private TimeHistogram collisionsByMinute = new TimeHistogram(1);
+	private VehicleTypeCounts collisionsByVehicleType = new VehicleTypeCounts();
+
+	/*
+	 * Creates a BoroughStats object without any collisions.
+	 */
+	BoroughStats ( Borough borough ) {
+		this.borough = borough;
+	}
+
+	/*
+	 * Adds a collision that occurred in the borough of this object to the totals.
+	 */
+	void add ( Collision col ) {
+		totalNumOfCollisions ++;
+		totalNumOfPersonsInjured += col.getPersonsInjured();
+		totalNumOfPersonsKilled += col.getPersonsKilled();
+		totalNumOfCyclistsInjured += col.getCyclistsInjured();
+		totalNumOfCyclistsKilled += col.getCyclistsKilled();
+		totalNumOfPedestriansInjured += col.getPedestriansInjured();
+		totalNumOfPedestriansKilled += col.getPedestriansKilled();
+		totalNumOfMotoristsInjured += col.getMotoristsInjured();
+		totalNumOfMotoristsKilled += col.getMotoristsKilled();
+		collisionsByMinute.add(col.getMinuteOfDay());
+		collisionsByVehicleType.add(col.getVehicleType1(), col.getVehicleType2());
+	}
+
+	/*
+	 * Adds the totals of another BoroughStats object of the same borough to the
+	 * totals of this object.
+	 */
+	void addAll ( BoroughStats other ) {
+		totalNumOfCollisions += other.totalNumOfCollisions;
+		totalNumOfPersonsInjured += other.totalNumOfPersonsInjured;
+		totalNumOfPersonsKilled += other.totalNumOfPersonsKilled;
+		totalNumOfCyclistsInjured += other.totalNumOfCyclistsInjured;
+		totalNumOfCyclistsKilled += other.totalNumOfCyclistsKilled;
+		totalNumOfPedestriansInjured += other.totalNumOfPedestriansInjured;
+		totalNumOfPedestriansKilled += other.totalNumOfPedestriansKilled;
+		totalNumOfMotoristsInjured += other.totalNumOfMotoristsInjured;
+		totalNumOfMotoristsKilled += other.totalNumOfMotoristsKilled;
+		collisionsByMinute.addAll(other.collisionsByMinute);
+		collisionsByVehicleType.addAll(other.collisionsByVehicleType);
+	}
+
+	/**
+	 * Returns the borough of this BoroughStats object
+	 * @return the borough
+	 */
+	Borough getBorough() {
+		return borough;
+	}
+
+	/**
+	 * Returns the total number of collisions of this borough
+	 * @return the totalNumOfCollisions
+	 */
+	public int getTotalNumOfCollisions() {
+		return totalNumOfCollisions;
+	}
+
+	/**
+	 * Returns the total number of persons injured in this borough
+	 * @return the totalNumOfPersonsInjured
+	 */
+	public int getTotalNumOfPersonsInjured() {
+		return totalNumOfPersonsInjured;
+	}
+
+	/**
+	 * Returns the total number of persons killed in this borough
+	 * @return the totalNumOfPersonsKilled
+	 */
+	public int getTotalNumOfPersonsKilled() {
+		return totalNumOfPersonsKilled;
+	}
+
+	/**
+	 * Returns the total number of cyclists injured in this borough
+	 * @return the totalNumOfCyclistsInjured
+	 */
+	public int getTotalNumOfCyclistsInjured() {
+		return totalNumOfCyclistsInjured;
+	}
+
+	/**
+	 * Returns the total number of cyclists killed in this borough
+	 * @return the totalNumOfCyclistsKilled
+	 */
+	public int getTotalNumOfCyclistsKilled() {
+		return totalNumOfCyclistsKilled;
+	}
+
+	/**
+	 * Returns the total number of pedestrians injured in this borough
+	 * @return the totalNumOfPedestriansInjured
+	 */
+	public int getTotalNumOfPedestriansInjured() {
+		return totalNumOfPedestriansInjured;
+	}
+
+	/**
+	 * Returns the total number of pedestrians killed in this borough
+	 * @return the totalNumOfPedestriansKilled
+	 */
+	public int getTotalNumOfPedestriansKilled() {
+		return totalNumOfPedestriansKilled;
+	}
+
+	/**
+	 * Returns the total number of motorists injured in this borough
+	 * @return the totalNumOfMotoristsInjured
+	 */
+	public int getTotalNumOfMotoristsInjured() {
+		return totalNumOfMotoristsInjured;
+	}
+
+	/**
+	 * Returns the total number of motorists killed in this borough
+	 * @return the totalNumOfMotoristsKilled
+	 */
+	public int getTotalNumOfMotoristsKilled() {
+		return totalNumOfMotoristsKilled;
+	}
+
+	/*
+	 * Returns the number of collisions of this borough for every minute of the day.
+	 */
+	TimeHistogram getCollisionsByMinute() {
+		return collisionsByMinute;
+	}
+
+	/*
+	 * Returns the number of collisions of this borough for every vehicle type.
+	 */
+	VehicleTypeCounts getCollisionsByVehicleType() {
+		return collisionsByVehicleType;
+	}
+
+	/**
+	 * Computes and returns a string representation of this BoroughStats object.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BoroughStats for " + borough + ": " + totalNumOfCollisions + ", " + totalNumOfPersonsInjured + ", "
+				+ totalNumOfPersonsKilled + ", " + totalNumOfCyclistsInjured + ", " + totalNumOfCyclistsKilled + ", "
+				+ totalNumOfPedestriansInjured + ", " + totalNumOfPedestriansKilled + ", " + totalNumOfMotoristsInjured
+				+ ", " + totalNumOfMotoristsKilled ;
+	}
+}
@@ -1,9 +1,19 @@
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.util.ArrayList;
 
 /**
  * Collision objects represent individual collisions occuring on NYC streets. 
  * Each object contains information regarding the time, location, number 
  * of injuries and fatalities and types of involved vehicles. 
+ * The fields are kept in a packed form that holds no String objects: the date as 
+ * an epoch day, the time as minutes since midnight, the borough as the ordinal of 
+ * its Borough, the zip code as an int, the vehicle types as their 
+ * VehicleTypeDictionary codes, the unique key as a long and the eight counts as 
+ * one byte each of a single long. Values that do not fit this form (counts outside 
+ * 0 to 255, unique keys that are not plain numbers) are kept aside as they are. 
+ * The getters rebuild the text of the fields when they are called. 
  * @author Joanna K. 
  *
  */
@@ -11,22 +21,31 @@ public class Collision implements Comparable <Collision>{
 	
 	static private SortOrder sortOrder = SortOrder.ZIP; 
 	
+	/** Value of the time of day of collisions whose time is missing or malformed. */
+	public static final short NO_TIME = -1;
+	/** Value of the epoch day of collisions whose date is missing or malformed. */
+	public static final int NO_DATE = Integer.MIN_VALUE;
+	/** Value of the latitude and longitude of collisions whose location is missing or malformed. */
+	public static final float NO_LOCATION = Float.NaN;
+	/* value of the numeric unique key of collisions whose key is empty or kept as text */
+	static final long NO_KEY = -1;
 	
-	private String date;
-	private String time;
-	private String borough;
-	private String zip;
-	private int personsInjured;
-	private int personsKilled;
-	private int pedestriansInjured;
-	private int pedestriansKilled;
-	private int cyclistsInjured;
-	private int cyclistsKilled;
-	private int motoristsInjured;
-	private int motoristsKilled;
-	private String vehicleCode1;
-	private String vehicleCode2;
-	private String uniqueKey;
+	
+	private int epochDay;
+	private short minuteOfDay;
+	private byte borough;
+	private int zipCode;
+	private float latitude;
+	private float longitude;
+	//one byte per count, indexed by the count column constants of CollisionStore
+	private long counts;
+	//all eight counts if one of them does not fit in a byte, null otherwise
+	private int [] wideCounts;
+	private short vehicleType1;
+	private short vehicleType2;
+	private long uniqueKey;
+	//the unique key if it is not empty and not kept as a number, null otherwise
+	private String uniqueKeyText;
 
 
 	
@@ -37,8 +56,8 @@ public class Collision implements Comparable <Collision>{
 	 * time
 	 * borough
 	 * zip
-	 * lattitude^
-	 * longitude ^
+	 * lattitude
+	 * longitude
 	 * on street name^
 	 * cross street name ^
 	 * personsInjured
@@ -62,32 +81,244 @@ public class Collision implements Comparable <Collision>{
 	 * due to errors or incompleteness of the entries parameter 
 	 */
 	public Collision ( ArrayList<String> entries ) throws IllegalArgumentException {
-		
-		date = entries.get(0);
-		time = entries.get(1);
-		borough = entries.get(2);
-		zip = entries.get(3);
+		RecordStatus status = read(entries);
+		if (status != RecordStatus.VALID) {
+			throw new IllegalArgumentException (status.getDescription());
+		}
+	}
+	
+	/**
+	 * Creates a Collision object from the entries of the line most recently split
+	 * by the tokenizer. The entries are expected in the same order as for the
+	 * Collision(ArrayList) constructor. String objects are created only for the 
+	 * entries that are kept by this Collision object, the numeric entries are 
+	 * parsed directly from the tokenizer. 
+	 * @param entries a tokenizer holding the entries describing the collision
+	 * @throws IllegalArgumentException when the Collision object cannot be created
+	 * due to errors or incompleteness of the entries parameter 
+	 */
+	public Collision ( CsvTokenizer entries ) throws IllegalArgumentException {
+		RecordStatus status = read(entries);
+		if (status != RecordStatus.VALID) {
+			throw new IllegalArgumentException (status.getDescription());
+		}
+	}
+
+	/*
+	 * Creates a Collision object whose fields are set by read(). 
+	 */
+	private Collision ( ) {
+	}
+
+	/*
+	 * Sets the fields of this object from the given entries. Malformed entries do not 
+	 * cause any exception: the reason why the entries do not describe a valid collision 
+	 * is returned instead, and the fields are then only partly set. 
+	 * @return VALID, INVALID_ZIP or INVALID_NUMBER 
+	 */
+	private RecordStatus read ( ArrayList<String> entries ) {
+		String zip = entries.get(3);
 		if (!verifyZip(zip)) {
-			throw new IllegalArgumentException ("invalid zip");
+			return RecordStatus.INVALID_ZIP;
 		}
-		try {
-			personsInjured = Integer.parseInt(entries.get(8));
-			personsKilled = Integer.parseInt(entries.get(9));
-			pedestriansInjured = Integer.parseInt(entries.get(10));
-			pedestriansKilled = Integer.parseInt(entries.get(11));
-			cyclistsInjured = Integer.parseInt(entries.get(12));
-			cyclistsKilled = Integer.parseInt(entries.get(13));
-			motoristsInjured = Integer.parseInt(entries.get(14));
-			motoristsKilled = Integer.parseInt(entries.get(15));			
+		long personsInjured = CsvTokenizer.tryParseInt(entries.get(8));
+		long personsKilled = CsvTokenizer.tryParseInt(entries.get(9));
+		long pedestriansInjured = CsvTokenizer.tryParseInt(entries.get(10));
+		long pedestriansKilled = CsvTokenizer.tryParseInt(entries.get(11));
+		long cyclistsInjured = CsvTokenizer.tryParseInt(entries.get(12));
+		long cyclistsKilled = CsvTokenizer.tryParseInt(entries.get(13));
+		long motoristsInjured = CsvTokenizer.tryParseInt(entries.get(14));
+		long motoristsKilled = CsvTokenizer.tryParseInt(entries.get(15));
+		if (!setCounts(personsInjured, personsKilled, pedestriansInjured, pedestriansKilled, 
+				cyclistsInjured, cyclistsKilled, motoristsInjured, motoristsKilled)) {
+			return RecordStatus.INVALID_NUMBER;
 		}
-		catch (NumberFormatException ex ) {
-			throw new IllegalArgumentException( ex.getMessage() );
+
+		zipCode = toZipCode(zip);
+		epochDay = parseEpochDay(entries.get(0));
+		minuteOfDay = parseMinuteOfDay(entries.get(1));
+		borough = (byte) Borough.of(entries.get(2)).ordinal();
+		latitude = parseCoordinate(entries.get(4));
+		longitude = parseCoordinate(entries.get(5));
+		setUniqueKey(entries.get(18));
+		vehicleType1 = VehicleTypeDictionary.codeOf(entries.get(19));
+		vehicleType2 = VehicleTypeDictionary.codeOf(entries.get(20));
+		return RecordStatus.VALID;
+	}
+
+	/*
+	 * Sets the fields of this object from the entries of the tokenizer, the same way 
+	 * as read(ArrayList). No object is created, unless the unique key is not a plain 
+	 * number. 
+	 * @return VALID, INVALID_ZIP or INVALID_NUMBER 
+	 */
+	private RecordStatus read ( CsvTokenizer entries ) {
+		if (!verifyZip(entries, 3)) {
+			return RecordStatus.INVALID_ZIP;
+		}
+		long personsInjured = entries.tryParseInt(8);
+		long personsKilled = entries.tryParseInt(9);
+		long pedestriansInjured = entries.tryParseInt(10);
+		long pedestriansKilled = entries.tryParseInt(11);
+		long cyclistsInjured = entries.tryParseInt(12);
+		long cyclistsKilled = entries.tryParseInt(13);
+		long motoristsInjured = entries.tryParseInt(14);
+		long motoristsKilled = entries.tryParseInt(15);
+		if (!setCounts(personsInjured, personsKilled, pedestriansInjured, pedestriansKilled, 
+				cyclistsInjured, cyclistsKilled, motoristsInjured, motoristsKilled)) {
+			return RecordStatus.INVALID_NUMBER;
+		}
+
+		for (int i = 0; i < 5; i++) {
+			zipCode = zipCode * 10 + Character.digit(entries.charAt(3, i), 10);
+		}
+		epochDay = parseEpochDay(entries.getEntryView(0));
+		minuteOfDay = parseMinuteOfDay(entries.getEntryView(1));
+		borough = (byte) Borough.of(entries.getEntryView(2)).ordinal();
+		latitude = parseCoordinate(entries.getEntryView(4));
+		longitude = parseCoordinate(entries.getEntryView(5));
+		setUniqueKey(entries.getEntryView(18));
+		vehicleType1 = VehicleTypeDictionary.codeOf(entries, 19);
+		vehicleType2 = VehicleTypeDictionary.codeOf(entries, 20);
+		return RecordStatus.VALID;
+	}
+
+	/*
+	 * Sets the eight injury and fatality counts, parsed by CsvTokenizer.tryParseInt(). 
+	 * Returns false, without setting any count, if one of them is not a valid integer. 
+	 */
+	private boolean setCounts ( long personsInjured, long personsKilled, long pedestriansInjured, 
+			long pedestriansKilled, long cyclistsInjured, long cyclistsKilled, 
+			long motoristsInjured, long motoristsKilled ) {
+		long invalid = CsvTokenizer.NOT_AN_INT;
+		if (personsInjured == invalid || personsKilled == invalid 
+				|| pedestriansInjured == invalid || pedestriansKilled == invalid 
+				|| cyclistsInjured == invalid || cyclistsKilled == invalid 
+				|| motoristsInjured == invalid || motoristsKilled == invalid) {
+			return false;
+		}
+		packCounts((int) personsInjured, (int) personsKilled, (int) pedestriansInjured, 
+				(int) pedestriansKilled, (int) cyclistsInjured, (int) cyclistsKilled, 
+				(int) motoristsInjured, (int) motoristsKilled);
+		return true;
+	}
+
+	/*
+	 * Packs the eight injury and fatality counts into one long, or keeps them in 
+	 * wideCounts if one of them is outside 0 to 255. 
+	 */
+	private void packCounts ( int personsInjured, int personsKilled, int pedestriansInjured, 
+			int pedestriansKilled, int cyclistsInjured, int cyclistsKilled, 
+			int motoristsInjured, int motoristsKilled ) {
+		if ((personsInjured | personsKilled | pedestriansInjured | pedestriansKilled 
+				| cyclistsInjured | cyclistsKilled | motoristsInjured | motoristsKilled) >>> 8 != 0) {
+			wideCounts = new int [] { personsInjured, personsKilled, pedestriansInjured, 
+					pedestriansKilled, cyclistsInjured, cyclistsKilled, motoristsInjured, motoristsKilled };
+			return;
+		}
+		counts = personsInjured
+				| (long) personsKilled << 8 * CollisionStore.PERSONS_KILLED
+				| (long) pedestriansInjured << 8 * CollisionStore.PEDESTRIANS_INJURED
+				| (long) pedestriansKilled << 8 * CollisionStore.PEDESTRIANS_KILLED
+				| (long) cyclistsInjured << 8 * CollisionStore.CYCLISTS_INJURED
+				| (long) cyclistsKilled << 8 * CollisionStore.CYCLISTS_KILLED
+				| (long) motoristsInjured << 8 * CollisionStore.MOTORISTS_INJURED
+				| (long) motoristsKilled << 8 * CollisionStore.MOTORISTS_KILLED;
+	}
+
+	/*
+	 * Returns one of the counts, given the index of its count column in CollisionStore. 
+	 */
+	int getCount ( int column ) {
+		if (wideCounts != null) 
+			return wideCounts[column];
+		return (int) (counts >>> 8 * column) & 0xFF;
+	}
+
+	/*
+	 * Keeps the unique key as its numeric value if it is a plain number: one to 18 
+	 * ASCII digits without leading zeros, so the number prints as the same text. 
+	 * Any other non-empty key is kept as text. 
+	 */
+	private void setUniqueKey ( CharSequence key ) {
+		int length = key.length();
+		uniqueKey = NO_KEY;
+		if (length == 0) 
+			return;
+		if (length <= 18 && (key.charAt(0) != '0' || length == 1)) {
+			long value = 0;
+			int i = 0;
+			for (; i < length; i++) {
+				char c = key.charAt(i);
+				if (c < '0' || c > '9') 
+					break;
+				value = value * 10 + (c - '0');
+			}
+			if (i == length) {
+				uniqueKey = value;
+				return;
+			}
 		}
-		
-		uniqueKey = entries.get(18);
-		vehicleCode1 = entries.get(19);
-		vehicleCode2 = entries.get(20);
-		
+		uniqueKeyText = key.toString();
+	}
+	
+	/*
+	 * Creates a Collision object from the given entries, or returns null if they do 
+	 * not describe a valid collision. No exception is thrown for malformed entries, 
+	 * so rejecting a record costs no more than accepting it. Unless metrics is null, 
+	 * the time taken and the outcome are recorded. 
+	 */
+	static Collision parse ( ArrayList<String> entries, CollisionMetrics metrics ) {
+		long start = metrics == null ? 0 : System.nanoTime();
+		Collision result = new Collision();
+		RecordStatus status = result.read(entries);
+		if (metrics != null) 
+			parsed(metrics, start, status);
+		return status == RecordStatus.VALID ? result : null;
+	}
+
+	/*
+	 * Creates a Collision object from the entries of the tokenizer, or returns null if 
+	 * they do not describe a valid collision, the same way as parse(ArrayList, 
+	 * CollisionMetrics). 
+	 */
+	static Collision parse ( CsvTokenizer entries, CollisionMetrics metrics ) {
+		long start = metrics == null ? 0 : System.nanoTime();
+		Collision result = new Collision();
+		RecordStatus status = result.read(entries);
+		if (metrics != null) 
+			parsed(metrics, start, status);
+		return status == RecordStatus.VALID ? result : null;
+	}
+
+	/*
+	 * Records the time taken by parsing a record that started at start and its outcome. 
+	 */
+	private static void parsed ( CollisionMetrics metrics, long start, RecordStatus status ) {
+		metrics.record(IngestPhase.CONSTRUCT, System.nanoTime() - start);
+		metrics.count(status);
+	}
+
+	/*
+	 * Creates a Collision object from already validated values. Used to recreate
+	 * Collision objects from the columns of a CollisionStore. 
+	 */
+	Collision ( int epochDay, short minuteOfDay, Borough borough, int zipCode, 
+			float latitude, float longitude, int personsInjured, int personsKilled, int pedestriansInjured, int pedestriansKilled,
+			int cyclistsInjured, int cyclistsKilled, int motoristsInjured, int motoristsKilled,
+			short vehicleType1, short vehicleType2, long uniqueKey, String uniqueKeyText ) {
+		this.epochDay = epochDay;
+		this.minuteOfDay = minuteOfDay;
+		this.borough = (byte) borough.ordinal();
+		this.zipCode = zipCode;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		packCounts(personsInjured, personsKilled, pedestriansInjured, pedestriansKilled, 
+				cyclistsInjured, cyclistsKilled, motoristsInjured, motoristsKilled);
+		this.vehicleType1 = vehicleType1;
+		this.vehicleType2 = vehicleType2;
+		this.uniqueKey = uniqueKey;
+		this.uniqueKeyText = uniqueKeyText;
 	}
 	
 	/*
@@ -95,7 +326,7 @@ public class Collision implements Comparable <Collision>{
 	 * @param zip the zip code to be verified 
 	 * @return true if zip is a valid zip code, false otherwise 
 	 */
-	private boolean verifyZip (String zip ) {
+	private static boolean verifyZip (String zip ) {
 		if ( zip.length()!=5 ) return false;
 		for (int i = 0; i < zip.length(); i++ ) {
 			if ( !Character.isDigit( zip.charAt(i) ) ) {
@@ -104,6 +335,185 @@ public class Collision implements Comparable <Collision>{
 		}
 		return true;
 	}
+	
+	/*
+	 * Converts a time of the form hour:minute to the number of minutes since midnight. 
+	 * Following the hourly statistics, the time is valid if the part before the first 
+	 * colon, without the surrounding white space, is an hour between 0 and 23. If the 
+	 * minutes are malformed, the time is rounded down to the full hour. 
+	 * @param time the time to be converted 
+	 * @return the number of minutes since midnight, or NO_TIME if the time is not valid 
+	 */
+	static short parseMinuteOfDay (CharSequence time ) {
+		int length = time.length();
+		int colon = 0;
+		while (colon < length && time.charAt(colon) != ':') 
+			colon++;
+		if (colon == length) return NO_TIME;
+
+		int hour = parseTimeField(time, 0, colon);
+		if (hour < 0 || hour > 23) return NO_TIME;
+
+		int end = colon + 1;
+		while (end < length && time.charAt(end) != ':') 
+			end++;
+		int minute = parseTimeField(time, colon + 1, end);
+		if (minute < 0 || minute > 59) minute = 0;
+
+		return (short) (hour * 60 + minute);
+	}
+
+	/*
+	 * Converts a date of the form month/day/year to the number of days since 
+	 * January 1, 1970 (the epoch day of java.time.LocalDate). The white space around 
+	 * the fields is ignored. 
+	 * @param date the date to be converted 
+	 * @return the epoch day, or NO_DATE if the date is not valid 
+	 */
+	static int parseEpochDay (CharSequence date ) {
+		int length = date.length();
+		int firstSlash = 0;
+		while (firstSlash < length && date.charAt(firstSlash) != '/') 
+			firstSlash++;
+		int secondSlash = firstSlash + 1;
+		while (secondSlash < length && date.charAt(secondSlash) != '/') 
+			secondSlash++;
+		if (secondSlash >= length) return NO_DATE;
+
+		int month = parseDateField(date, 0, firstSlash);
+		int day = parseDateField(date, firstSlash + 1, secondSlash);
+		int year = parseDateField(date, secondSlash + 1, length);
+		if (month < 1 || month > 12 || day < 1 || year < 0) return NO_DATE;
+		//checked here rather than by catching the exception of LocalDate.of()
+		if (day > Month.of(month).length(Year.isLeap(year))) return NO_DATE;
+		return (int) LocalDate.of(year, month, day).toEpochDay();
+	}
+
+	/*
+	 * Converts a latitude or longitude written as a decimal number, for example 
+	 * -73.9712488, without creating any objects. The white space around the number 
+	 * is ignored. 
+	 * @param coordinate the coordinate to be converted 
+	 * @return the coordinate in degrees, or NO_LOCATION if it is missing or not a 
+	 * decimal number 
+	 */
+	static float parseCoordinate (CharSequence coordinate ) {
+		int from = 0;
+		int to = coordinate.length();
+		while (from < to && coordinate.charAt(from) <= ' ') 
+			from++;
+		while (to > from && coordinate.charAt(to - 1) <= ' ') 
+			to--;
+		boolean negative = false;
+		if (from < to && (coordinate.charAt(from) == '-' || coordinate.charAt(from) == '+')) {
+			negative = coordinate.charAt(from) == '-';
+			from++;
+		}
+
+		long digits = 0;
+		int numOfDigits = 0;
+		int numOfDecimals = 0;
+		boolean point = false;
+		for (int i = from; i < to; i++ ) {
+			char c = coordinate.charAt(i);
+			if (c == '.' && !point) {
+				point = true;
+				continue;
+			}
+			int digit = Character.digit(c, 10);
+			if (digit < 0) return NO_LOCATION;
+			//digits beyond the precision of a float are dropped
+			if (numOfDigits < 15) {
+				digits = digits * 10 + digit;
+				numOfDigits++;
+				if (point) numOfDecimals++;
+			}
+			else if (!point) {
+				return NO_LOCATION; //far too large to be a coordinate
+			}
+		}
+		if (numOfDigits == 0) return NO_LOCATION;
+
+		double value = digits / Math.pow(10, numOfDecimals);
+		return (float) (negative ? -value : value);
+	}
+
+	/*
+	 * Parses date.subSequence(from, to), without the surrounding white space, as an 
+	 * unsigned decimal number of at most four digits. 
+	 * @return the value, or -1 if the characters do not form such a number 
+	 */
+	private static int parseDateField (CharSequence date, int from, int to ) {
+		while (from < to && date.charAt(from) <= ' ') 
+			from++;
+		while (to > from && date.charAt(to - 1) <= ' ') 
+			to--;
+		if (from == to || to - from > 4) return -1;
+		int value = 0;
+		for (int i = from; i < to; i++ ) {
+			int digit = Character.digit(date.charAt(i), 10);
+			if (digit < 0) return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/*
+	 * Parses time.subSequence(from, to), without the surrounding white space, 
+	 * following the rules of Integer.parseInt(). Values larger than 
+	 * 100 are reported as 100. 
+	 * @return the value, or -1 if the characters do not form an integer 
+	 */
+	private static int parseTimeField (CharSequence time, int from, int to ) {
+		while (from < to && time.charAt(from) <= ' ') 
+			from++;
+		while (to > from && time.charAt(to - 1) <= ' ') 
+			to--;
+		if (from == to) return -1;
+
+		boolean negative = false;
+		char first = time.charAt(from);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			from++;
+			if (from == to) return -1;
+		}
+		int value = 0;
+		for (int i = from; i < to; i++ ) {
+			int digit = Character.digit(time.charAt(i), 10);
+			if (digit < 0) return -1;
+			value = Math.min(100, value * 10 + digit);
+		}
+		if (negative && value != 0) return -1;
+		return value;
+	}
+	
+	/*
+	 * Converts a verified zip code to its integer value. 
+	 */
+	private static int toZipCode (String zip ) {
+		int value = 0;
+		for (int i = 0; i < zip.length(); i++ ) {
+			value = value * 10 + Character.digit( zip.charAt(i), 10 );
+		}
+		return value;
+	}
+	
+	/*
+	 * Verifies accuracy of the zip code stored in the given entry of the tokenizer. 
+	 * @param entries the tokenizer holding the zip code 
+	 * @param entry index of the zip code entry 
+	 * @return true if the entry is a valid zip code, false otherwise 
+	 */
+	private static boolean verifyZip (CsvTokenizer entries, int entry ) {
+		if ( entries.length(entry)!=5 ) return false;
+		for (int i = 0; i < 5; i++ ) {
+			if ( !Character.isDigit( entries.charAt(entry, i) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
 
 
 	/** 
@@ -112,12 +522,12 @@ public class Collision implements Comparable <Collision>{
 	 */
 	@Override
 	public String toString() {
-		return "Collision [date=" + date + ", time=" + time + ", borough=" + borough + ", zip=" + zip
-				+ ", personsInjured=" + personsInjured + ", personsKilled=" + personsKilled + ", pedestriansInjured="
-				+ pedestriansInjured + ", pedestriansKilled=" + pedestriansKilled + ", cyclistsInjured="
-				+ cyclistsInjured + ", cyclistsKilled=" + cyclistsKilled + ", motoristsInjured=" + motoristsInjured
-				+ ", motoristsKilled=" + motoristsKilled + ", vehicleCode1=" + vehicleCode1 + ", vehicleCode2="
-				+ vehicleCode2 + ", uniqueKey=" + uniqueKey + "]";
+		return "Collision [date=" + getDate() + ", time=" + getTime() + ", borough=" + getBorough() + ", zip=" + getZip()
+				+ ", personsInjured=" + getPersonsInjured() + ", personsKilled=" + getPersonsKilled() + ", pedestriansInjured="
+				+ getPedestriansInjured() + ", pedestriansKilled=" + getPedestriansKilled() + ", cyclistsInjured="
+				+ getCyclistsInjured() + ", cyclistsKilled=" + getCyclistsKilled() + ", motoristsInjured=" + getMotoristsInjured()
+				+ ", motoristsKilled=" + getMotoristsKilled() + ", vehicleCode1=" + getVehicleCode1() + ", vehicleCode2="
+				+ getVehicleCode2() + ", uniqueKey=" + getUniqueKey() + "]";
 	}
 	
 	
@@ -139,25 +549,96 @@ public class Collision implements Comparable <Collision>{
 	@Override
 	public int compareTo(Collision other) {
 		if ( sortOrder == SortOrder.ZIP ) {
-			return this.zip.compareTo(other.zip); 
+			//the zip codes have five digits, so they compare as their text does
+			return Integer.compare(this.zipCode, other.zipCode); 
 		}
 		else if (sortOrder == SortOrder.CYCLISTS) {
-			return ( (this.cyclistsInjured + this.cyclistsKilled) 
-					- (other.cyclistsInjured + this.cyclistsKilled ) );
+			return ( (this.getCyclistsInjured() + this.getCyclistsKilled()) 
+					- (other.getCyclistsInjured() + this.getCyclistsKilled() ) );
 		}
 		else if (sortOrder == SortOrder.PERSONS) {
-			return ( (this.personsInjured + this.personsKilled) 
-					- (other.personsInjured + this.personsKilled ) );
+			return ( (this.getPersonsInjured() + this.getPersonsKilled()) 
+					- (other.getPersonsInjured() + this.getPersonsKilled() ) );
 		}
 		return 0;
 	}
 
 	/**
-	 * Return the time of this Collision object. 
-	 * @return the time
+	 * Return the date of this Collision object formatted as month/day/year, with 
+	 * two-digit months and days. 
+	 * @return the date, or an empty string if the date of this collision is missing 
+	 * or malformed
+	 */
+	public String getDate() {
+		if (epochDay == NO_DATE) return "";
+		LocalDate date = LocalDate.ofEpochDay(epochDay);
+		return String.format("%02d/%02d/%04d", date.getMonthValue(), date.getDayOfMonth(), date.getYear());
+	}
+
+	/**
+	 * Return the date of this Collision object as the number of days since January 1, 
+	 * 1970, the value used by java.time.LocalDate.toEpochDay(). The date is parsed once, 
+	 * when this Collision object is created. 
+	 * @return the epochDay, or NO_DATE if the date of this collision is missing or 
+	 * malformed 
+	 */
+	public int getEpochDay() {
+		return epochDay;
+	}
+
+	/**
+	 * Return the time of this Collision object formatted as hour:minute. 
+	 * @return the time, or an empty string if the time of this collision is not known
 	 */
 	public String getTime() {
-		return time;
+		if (minuteOfDay == NO_TIME) return "";
+		return String.format("%d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+	}
+
+	/**
+	 * Return the time of this Collision object as the number of minutes since midnight. 
+	 * The time is parsed once, when this Collision object is created. 
+	 * @return the minuteOfDay, or NO_TIME if the time of this collision is missing or 
+	 * malformed 
+	 */
+	public short getMinuteOfDay() {
+		return minuteOfDay;
+	}
+
+	/**
+	 * Return the borough of this Collision object. The name is the one of the 
+	 * Borough it was recognized as. 
+	 * @return the borough, or an empty string if the borough of this collision is 
+	 * missing or not recognized
+	 */
+	public String getBorough() {
+		return getBoroughValue().getName();
+	}
+
+	/*
+	 * Return the borough of this Collision object, UNKNOWN if it is missing or not 
+	 * recognized. 
+	 */
+	Borough getBoroughValue() {
+		return Borough.ofOrdinal(borough);
+	}
+
+	/**
+	 * Return the latitude of the location of this Collision object. 
+	 * @return the latitude in degrees, or NO_LOCATION if the location of this 
+	 * collision is missing or malformed 
+	 */
+	public float getLatitude() {
+		return latitude;
+	}
+
+	/**
+	 * Return the longitude of the location of this Collision object. 
+	 * @return the longitude in degrees, or NO_LOCATION if the location of this 
+	 * collision is missing or malformed 
+	 */
+	public float getLongitude() {
+		return longitude;
 	}
 
 	/**
@@ -165,7 +646,16 @@ public class Collision implements Comparable <Collision>{
 	 * @return the zip
 	 */
 	public String getZip() {
-		return zip;
+		return String.format("%05d", zipCode);
+	}
+
+	/**
+	 * Return the zip code of this Collision object as an integer. The value
+	 * is in the range 0 to 99999. 
+	 * @return the zip code
+	 */
+	public int getZipCode() {
+		return zipCode;
 	}
 
 	/**
@@ -173,7 +663,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the cyclistsInjured
 	 */
 	public int getCyclistsInjured() {
-		return cyclistsInjured;
+		return getCount(CollisionStore.CYCLISTS_INJURED);
 	}
 
 	/**
@@ -181,7 +671,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the cyclistsKilled
 	 */
 	public int getCyclistsKilled() {
-		return cyclistsKilled;
+		return getCount(CollisionStore.CYCLISTS_KILLED);
 	}
 
 	/**
@@ -189,7 +679,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the personsInjured
 	 */
 	public int getPersonsInjured() {
-		return personsInjured;
+		return getCount(CollisionStore.PERSONS_INJURED);
 	}
 
 	/**
@@ -197,7 +687,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the personsKilled
 	 */
 	public int getPersonsKilled() {
-		return personsKilled;
+		return getCount(CollisionStore.PERSONS_KILLED);
 	}
 
 	
@@ -207,7 +697,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the pedestriansInjured
 	 */
 	public int getPedestriansInjured() {
-		return pedestriansInjured;
+		return getCount(CollisionStore.PEDESTRIANS_INJURED);
 	}
 
 	/**
@@ -215,7 +705,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the pedestriansKilled
 	 */
 	public int getPedestriansKilled() {
-		return pedestriansKilled;
+		return getCount(CollisionStore.PEDESTRIANS_KILLED);
 	}
 
 	/**
@@ -223,7 +713,7 @@ public class Collision implements Comparable <Collision>{
 	 * @return the motoristsInjured
 	 */
 	public int getMotoristsInjured() {
-		return motoristsInjured;
+		return getCount(CollisionStore.MOTORISTS_INJURED);
 	}
 
 	/**
@@ -231,23 +721,68 @@ public class Collision implements Comparable <Collision>{
 	 * @return the motoristsKilled
 	 */
 	public int getMotoristsKilled() {
-		return motoristsKilled;
+		return getCount(CollisionStore.MOTORISTS_KILLED);
 	}
 
 	/**
-	 * Return the vehicle 1 of this Collision object. 
+	 * Return the vehicle 1 of this Collision object. Vehicle types that differ only
+	 * in case are stored once, the returned name is the spelling under which the 
+	 * vehicle type was seen first. 
 	 * @return the vehicleCode1
 	 */
 	public String getVehicleCode1() {
-		return vehicleCode1;
+		return VehicleTypeDictionary.nameOf(vehicleType1);
 	}
 
 	/**
-	 * Return the vehicle 2 of this Collision object. 
+	 * Return the vehicle 2 of this Collision object. Vehicle types that differ only
+	 * in case are stored once, the returned name is the spelling under which the 
+	 * vehicle type was seen first. 
 	 * @return the vehicleCode2
 	 */
 	public String getVehicleCode2() {
-		return vehicleCode2;
+		return VehicleTypeDictionary.nameOf(vehicleType2);
+	}
+
+	/**
+	 * Return the dictionary code of the vehicle 1 of this Collision object. 
+	 * @return the code of vehicleCode1 in the VehicleTypeDictionary
+	 */
+	public short getVehicleType1() {
+		return vehicleType1;
+	}
+
+	/**
+	 * Return the dictionary code of the vehicle 2 of this Collision object. 
+	 * @return the code of vehicleCode2 in the VehicleTypeDictionary
+	 */
+	public short getVehicleType2() {
+		return vehicleType2;
+	}
+
+	/**
+	 * Return the unique key of this Collision object. 
+	 * @return the uniqueKey
+	 */
+	public String getUniqueKey() {
+		if (uniqueKeyText != null) return uniqueKeyText;
+		return uniqueKey == NO_KEY ? "" : Long.toString(uniqueKey);
+	}
+
+	/*
+	 * Return the unique key of this Collision object as a number, or NO_KEY if it is 
+	 * empty or kept as text, see getUniqueKeyText(). 
+	 */
+	long getNumericUniqueKey() {
+		return uniqueKey;
+	}
+
+	/*
+	 * Return the unique key of this Collision object if it is not empty and not a plain 
+	 * number, null otherwise. 
+	 */
+	String getUniqueKeyText() {
+		return uniqueKeyText;
 	}
 	
 }
@@ -0,0 +1,139 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * CollisionFileFollower reads a collision data file that keeps growing, such as a
+ * feed to which new records are appended during the day. It remembers the byte
+ * offset up to which the file has been read, and every call of poll() adds only
+ * the complete lines appended since the previous call to the CollisionList object.
+ * A line is complete once its terminating newline has been written, a partially
+ * written last line is left in the file until a later call of poll().
+ * The per-zip totals, time of day counts and vehicle type counts are updated as
+ * the records are added, so the reports of the CollisionList can be recomputed
+ * after every poll() without reading the earlier records again.
+ * @author Aaron Walker
+ *
+ */
+public class CollisionFileFollower {
+
+	/* number of bytes read from the file at once */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private final CollisionList list;
+	private final int numOfEntries;
+	private final Charset charset;
+	private final CsvTokenizer words = new CsvTokenizer();
+	private long offset;
+	/* the bytes of the line currently being assembled */
+	private byte[] line = new byte[256];
+
+	/**
+	 * Creates a CollisionFileFollower that adds the records of the given file to the
+	 * given list, starting at the beginning of the file.
+	 * @param file the file to be followed
+	 * @param list the CollisionList object to which the records are added
+	 * @param numOfEntries the number of entries a complete line has, lines with a
+	 * different number of entries are skipped
+	 */
+	public CollisionFileFollower(File file, CollisionList list, int numOfEntries) {
+		this.file = file;
+		this.list = list;
+		this.numOfEntries = numOfEntries;
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * Reads the complete lines appended to the file since the previous call of this
+	 * method (or the whole file on the first call) and adds their records to the list.
+	 * @return the number of records added to the list
+	 * @throws IOException if the file cannot be read or has become shorter than the
+	 * part of it that was already read
+	 */
+	public int poll() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size < offset)
+				throw new IOException("File " + file + " was truncated below the offset " + offset);
+
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			long position = offset;
+			int lineLength = 0;
+			int numAdded = 0;
+			while (position < size) {
+				buffer.clear();
+				CollisionMetrics metrics = list.getMetrics();
+				long readStart = metrics == null ? 0 : System.nanoTime();
+				int numRead = channel.read(buffer, position);
+				if (numRead <= 0)
+					break;
+				if (metrics != null) {
+					metrics.record(IngestPhase.READ, System.nanoTime() - readStart);
+					metrics.bytesRead(numRead);
+				}
+				for (int i = 0; i < numRead; i++) {
+					byte b = bytes[i];
+					if (b == '\n') {
+						if (addLine(lineLength))
+							numAdded++;
+						lineLength = 0;
+						//everything up to the newline has been consumed
+						offset = position + i + 1;
+					}
+					else {
+						if (lineLength == line.length)
+							line = Arrays.copyOf(line, 2 * line.length);
+						line[lineLength++] = b;
+					}
+				}
+				position += numRead;
+			}
+			return numAdded;
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	/*
+	 * Adds the record stored in the first length bytes of the line buffer to the list.
+	 * Returns true if the line held a valid record.
+	 */
+	private boolean addLine(int length) {
+		if (length > 0 && line[length - 1] == '\r')
+			length--;
+		CollisionMetrics metrics = list.getMetrics();
+		long splitStart = metrics == null ? 0 : System.nanoTime();
+		boolean complete = words.tokenize(new String(line, 0, length, charset)) == numOfEntries;
+		if (metrics != null)
+			metrics.lineSplit(System.nanoTime() - splitStart, complete);
+		if (!complete) {
+			return false; //skip lines that are not complete
+		}
+		return list.add(words);
+	}
+
+	/**
+	 * Returns the offset one past the last complete line that has been read.
+	 * @return the number of bytes of the file that have been read
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the file followed by this object.
+	 * @return the file
+	 */
+	public File getFile() {
+		return file;
+	}
+}
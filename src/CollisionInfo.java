@@ -1,7 +1,14 @@
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.management.JMException;
 
 /**
  * This is a program that computes some information about the data posted by
@@ -16,12 +23,53 @@ public class CollisionInfo {
 	 * The main method that starts the program. It is responsible for opening and reading the
 	 * input file, creating the CollisionList object and using it compute the 
 	 * predetermined results. 
-	 * @param args the array should contain the name of the input file as the first element, 
-	 * all other elements are ignored 
-	 * @throws FileNotFoundException if the input file is corrupted or vanishes during the 
+	 * @param args the array should contain the name of the input file, it may be preceded
+	 * by the following options. Several input files can be given, as well as directories 
+	 * (all .csv files in them are read) or patterns such as data/2015-*.csv; the files 
+	 * are then read at the same time by MultiFileCollisionReader, on as many threads as 
+	 * given by --threads, and the options choosing how a single file is read, the 
+	 * snapshots and --follow do not apply. 
+	 *   --mapped       read the file through memory-mapping and parse it on all cores
+	 *   --pipeline     read, parse and store the file in concurrent stages linked by 
+	 *                  bounded queues and print the throughput of every stage 
+	 *   --threads=N    number of threads used by --mapped, or of parser threads used by 
+	 *                  --pipeline (default: number of cores)
+	 *   --batch-size=N number of lines passed between the stages of --pipeline at once
+	 *   --concurrent   with --mapped or --pipeline, let all parsing threads add the 
+	 *                  records to a single ConcurrentCollisionList 
+	 *   --parallel-queries  compute the results on all cores 
+	 *   --vehicle-types  also print the frequencies of all vehicle types
+	 *   --boroughs     also print the number of collisions of every borough and its 
+	 *                  zip codes with the most collisions 
+	 *   --densest      also print the areas of about 550 by 420 meters with the most 
+	 *                  collisions 
+	 *   --no-snapshot  neither load nor write the binary snapshot of the input file
+	 *   --streaming    keep only the totals and counts of every zip code, not the 
+	 *                  records, so the memory used does not grow with the size of the 
+	 *                  input file (with --mapped the records of the chunks parsed ahead 
+	 *                  are still held until they are added); implies --no-snapshot, 
+	 *                  cannot be combined with --concurrent or --densest 
+	 *   --dedup        drop the records whose unique key has already been read, from 
+	 *                  the same file or from another input file, and print how many 
+	 *                  were dropped; implies --no-snapshot 
+	 *   --off-heap     keep the records in direct memory outside of the Java heap, so 
+	 *                  garbage collection pauses do not grow with the number of records 
+	 *                  (see OffHeapCollisionStore); implies --no-snapshot, cannot be 
+	 *                  combined with --concurrent or --streaming 
+	 *   --metrics[=S]  count the lines and bytes read and the rows added and rejected 
+	 *                  by reason, and time every phase of loading and every query; the 
+	 *                  metrics are available through JMX, printed to the standard error 
+	 *                  every S seconds (default: 10) and once more at the end 
+	 *   --follow[=S]   keep watching the input file, every S seconds (default: 5) add the 
+	 *                  lines appended to it and print the updated results 
+	 * Unless --no-snapshot is given, the parsed data is saved to a snapshot file next to 
+	 * the input file (its name with .snapshot appended) and the snapshot is loaded instead 
+	 * of the input file by later runs, as long as it is newer than the input file. 
+	 * The snapshot is not used with --follow. 
+	 * @throws IOException if the input file is corrupted or vanishes during the 
 	 * execution of this program 
 	 */
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException {
 		long avgReadStore = 0;
 		long avgComp = 0;
 
@@ -30,72 +78,411 @@ public class CollisionInfo {
 
 		startTimer = System.nanoTime();
 
-		if (args.length < 1) {
+		ArrayList<String> inputNames = new ArrayList<String>();
+		boolean mapped = false;
+		boolean pipeline = false;
+		boolean concurrent = false;
+		boolean parallelQueries = false;
+		int batchSize = PipelinedCollisionReader.DEFAULT_BATCH_SIZE;
+		boolean allVehicleTypes = false;
+		boolean boroughs = false;
+		boolean densest = false;
+		boolean streaming = false;
+		boolean dedup = false;
+		boolean offHeap = false;
+		boolean useSnapshot = true;
+		int numOfThreads = Runtime.getRuntime().availableProcessors();
+		int followSeconds = 0;
+		int metricsSeconds = 0;
+		for (String arg : args) {
+			if (arg.equals("--mapped")) {
+				mapped = true;
+			}
+			else if (arg.equals("--pipeline")) {
+				pipeline = true;
+			}
+			else if (arg.equals("--concurrent")) {
+				concurrent = true;
+			}
+			else if (arg.equals("--parallel-queries")) {
+				parallelQueries = true;
+			}
+			else if (arg.startsWith("--batch-size=")) {
+				try {
+					batchSize = Integer.parseInt(arg.substring("--batch-size=".length()));
+				}
+				catch (NumberFormatException ex) {
+					System.err.printf("Invalid batch size: %s\n", arg);
+					System.exit(0);
+				}
+			}
+			else if (arg.equals("--vehicle-types")) {
+				allVehicleTypes = true;
+			}
+			else if (arg.equals("--boroughs")) {
+				boroughs = true;
+			}
+			else if (arg.equals("--densest")) {
+				densest = true;
+			}
+			else if (arg.equals("--streaming")) {
+				streaming = true;
+			}
+			else if (arg.equals("--dedup")) {
+				dedup = true;
+			}
+			else if (arg.equals("--off-heap")) {
+				offHeap = true;
+			}
+			else if (arg.equals("--no-snapshot")) {
+				useSnapshot = false;
+			}
+			else if (arg.equals("--metrics")) {
+				metricsSeconds = 10;
+			}
+			else if (arg.startsWith("--metrics=")) {
+				try {
+					metricsSeconds = Integer.parseInt(arg.substring("--metrics=".length()));
+				}
+				catch (NumberFormatException ex) {
+					metricsSeconds = 0;
+				}
+				if (metricsSeconds < 1) {
+					System.err.printf("Invalid metrics interval: %s\n", arg);
+					System.exit(0);
+				}
+			}
+			else if (arg.equals("--follow")) {
+				followSeconds = 5;
+			}
+			else if (arg.startsWith("--follow=")) {
+				try {
+					followSeconds = Integer.parseInt(arg.substring("--follow=".length()));
+				}
+				catch (NumberFormatException ex) {
+					followSeconds = 0;
+				}
+				if (followSeconds < 1) {
+					System.err.printf("Invalid follow interval: %s\n", arg);
+					System.exit(0);
+				}
+			}
+			else if (arg.startsWith("--threads=")) {
+				try {
+					numOfThreads = Integer.parseInt(arg.substring("--threads=".length()));
+				}
+				catch (NumberFormatException ex) {
+					System.err.printf("Invalid number of threads: %s\n", arg);
+					System.exit(0);
+				}
+			}
+			else {
+				inputNames.add(arg);
+			}
+		}
+
+		if (inputNames.isEmpty()) {
 			System.err.println("File name missing");
 			System.exit(0);
 		}
 
-		File fileName = new File(args[0]);
+		if (streaming && (concurrent || densest)) {
+			System.err.println("--streaming cannot be combined with --concurrent or --densest");
+			System.exit(0);
+		}
+		if (offHeap && (concurrent || streaming)) {
+			System.err.println("--off-heap cannot be combined with --concurrent or --streaming");
+			System.exit(0);
+		}
+		if (streaming || dedup || offHeap) {
+			useSnapshot = false;
+		}
 
-		if (!fileName.canRead()) {
-			System.err.printf("Cannot read from file %s\n.", fileName.getAbsolutePath());
+		ArrayList<File> inputFiles = new ArrayList<File>();
+		for (String inputName : inputNames) {
+			List<File> files = MultiFileCollisionReader.listInputFiles(inputName);
+			if (files.isEmpty()) {
+				System.err.printf("No input files match %s\n", inputName);
+				System.exit(0);
+			}
+			inputFiles.addAll(files);
+		}
+		for (File inputFile : inputFiles) {
+			if (!inputFile.canRead()) {
+				System.err.printf("Cannot read from file %s\n.", inputFile.getAbsolutePath());
+				System.exit(0);
+			}
+		}
+		boolean multipleFiles = inputFiles.size() > 1;
+		if (multipleFiles) {
+			useSnapshot = false;
+		}
+		if (multipleFiles && followSeconds > 0) {
+			System.err.println("--follow needs a single input file");
 			System.exit(0);
 		}
 
-		Scanner fin = new Scanner(fileName);
+		File fileName = inputFiles.get(0);
 
-		CollisionList list = new CollisionList();
+		CollisionMetrics metrics = null;
+		ScheduledExecutorService metricsDump = null;
+		if (metricsSeconds > 0) {
+			metrics = new CollisionMetrics();
+			try {
+				metrics.register();
+			}
+			catch (JMException ex) {
+				System.err.printf("Cannot register metrics: %s\n", ex.getMessage());
+			}
+			metricsDump = metrics.dumpEvery(System.err, metricsSeconds);
+		}
+
+		if (followSeconds > 0) {
+			follow(fileName, NUM_OF_ENTRIES, followSeconds, allVehicleTypes, !streaming, dedup, offHeap, metrics);
+			return;
+		}
+
+		File snapshot = new File(fileName.getPath() + ".snapshot");
+		CollisionList list = null;
+		boolean snapshotLoaded = false;
+		PipelinedCollisionReader pipelinedReader = null;
+
+		if (useSnapshot && snapshot.lastModified() > fileName.lastModified()) {
+			try {
+				list = CollisionList.load(snapshot);
+				snapshotLoaded = true;
+			}
+			catch (IOException ex) {
+				System.err.printf("Ignoring snapshot %s: %s\n", snapshot, ex.getMessage());
+			}
+		}
+
+		if (snapshotLoaded) {
+			//the data is already in memory
+			list.setMetrics(metrics);
+		}
+		else if (multipleFiles) {
+			MultiFileCollisionReader reader = new MultiFileCollisionReader(numOfThreads);
+			reader.setMetrics(metrics);
+			reader.setOffHeap(offHeap);
+			list = reader.read(inputFiles, NUM_OF_ENTRIES, !streaming, dedup);
+		}
+		else if (pipeline) {
+			list = newList(concurrent, numOfThreads, !streaming, dedup, offHeap, metrics);
+			pipelinedReader = new PipelinedCollisionReader(numOfThreads, batchSize, 
+					PipelinedCollisionReader.DEFAULT_BATCHES_PER_PARSER * numOfThreads);
+			pipelinedReader.read(fileName, list, NUM_OF_ENTRIES);
+		}
+		else if (mapped) {
+			list = newList(concurrent, numOfThreads, !streaming, dedup, offHeap, metrics);
+			new MappedCollisionReader(numOfThreads).read(fileName, list, NUM_OF_ENTRIES);
+		}
+		else {
+			list = newList(false, numOfThreads, !streaming, dedup, offHeap, metrics);
+			Scanner fin = new Scanner(fileName);
+			CsvTokenizer words = new CsvTokenizer();
 
-		while ( fin.hasNextLine() ) {
+			while ( fin.hasNextLine() ) {
 
-			String textLine = fin.nextLine(); 
-			ArrayList <String> words = split (textLine ) ;
+				long readStart = metrics == null ? 0 : System.nanoTime();
+				String textLine = fin.nextLine(); 
+				if (metrics != null) {
+					metrics.record(IngestPhase.READ, System.nanoTime() - readStart);
+					//the data is ASCII, one byte per character and a line terminator
+					metrics.bytesRead(textLine.length() + 1);
+				}
 
-			if (words.size() != NUM_OF_ENTRIES) {
-				continue; //skip lines that are not complete
+				long splitStart = metrics == null ? 0 : System.nanoTime();
+				boolean complete = words.tokenize(textLine) == NUM_OF_ENTRIES;
+				if (metrics != null) {
+					metrics.lineSplit(System.nanoTime() - splitStart, complete);
+				}
+				if (!complete) {
+					continue; //skip lines that are not complete
+				}
+				list.add(words);
 			}
-			list.add(words);
+			fin.close();
 		}
 		elapsedTime1 = System.nanoTime() - startTimer; 
 
+		if (parallelQueries) {
+			list.setParallelQueries(ForkJoinPool.commonPool(), CollisionList.DEFAULT_PARALLEL_THRESHOLD);
+		}
+
 		startTimer = System.nanoTime();
+		printReports(list, allVehicleTypes);
+		if (boroughs) {
+			printBoroughReports(list);
+		}
+		if (densest) {
+			System.out.println("Areas with the largest number of collisions:");
+			System.out.println( list.getDensestCells( 3 ) );
+		}
+		elapsedTime2 =  System.nanoTime() - startTimer; 
+		
+		System.out.println("\n\n============================================\n");
+		System.out.printf("Reading and storing data: %,15d nanoseconds\n", elapsedTime1);
+		System.out.printf("Computation of results  : %,15d nanoseconds\n", elapsedTime2);
+		if (dedup) {
+			System.out.printf("Duplicate records dropped: %,d\n", list.getNumOfDuplicates());
+		}
+		if (pipelinedReader != null) {
+			System.out.println("Reading pipeline stages:");
+			System.out.print(pipelinedReader.getStats());
+		}
+		if (metrics != null) {
+			metricsDump.shutdown();
+			System.out.println("Metrics:");
+			System.out.print(metrics.getSummary());
+		}
+
+		if (useSnapshot && !snapshotLoaded) {
+			try {
+				list.save(snapshot);
+			}
+			catch (IOException ex) {
+				System.err.printf("Cannot write snapshot %s: %s\n", snapshot, ex.getMessage());
+			}
+		}
+
+	}
+
+
+	/*
+	 * Computes all six tasks (and the frequencies of all vehicle types if requested) 
+	 * in a single pass over the data and prints them. 
+	 */
+	private static void printReports(CollisionList list, boolean allVehicleTypes) {
+		EnumSet<ReportType> reports = EnumSet.of( 
+				ReportType.MOST_COLLISIONS, ReportType.LEAST_COLLISIONS, 
+				ReportType.MOST_PERSON_INCIDENTS, ReportType.MOST_CYCLIST_INCIDENTS, 
+				ReportType.VEHICLE_TYPE_STATS, ReportType.HOURLY_STATS );
+		if (allVehicleTypes) {
+			reports.add( ReportType.VEHICLE_TYPE_FREQUENCIES );
+		}
+		EnumMap<ReportType, String> results = list.getReports( reports, 3 );
+
 		//task 1 
 		System.out.println("ZIP codes with the largest number of collisions:");
-		System.out.println( list.getZipCodesWithMostCollisions( 3 ) );
+		System.out.println( results.get( ReportType.MOST_COLLISIONS ) );
 
 		//task2
 		System.out.println("ZIP codes with the fewest number of collisions:");
-		System.out.println( list.getZipCodesWithLeastCollisions( 3 ) ); 
+		System.out.println( results.get( ReportType.LEAST_COLLISIONS ) ); 
 
 		//task 3
 		System.out.println("ZIP codes with the most injuries and fatalities (combined):");
-		System.out.println( list.getZipCodesWithMostPersonIncidents( 3 ) );
+		System.out.println( results.get( ReportType.MOST_PERSON_INCIDENTS ) );
 
 		//task 4
 		System.out.println("ZIP codes with the most cyclist injuries and fatalities:");
-		System.out.println( list.getZipCodesWithMostCyclistIncidents( 3 ) );
+		System.out.println( results.get( ReportType.MOST_CYCLIST_INCIDENTS ) );
 
 		//task5:
 		System.out.println("Percentage of collisions involving certain vehicle type:");
-		System.out.println(list.getVehicleTypeStats());
+		System.out.println( results.get( ReportType.VEHICLE_TYPE_STATS ) );
+		if (allVehicleTypes) {
+			System.out.println("Number and percentage of collisions involving each vehicle type:");
+			System.out.println( results.get( ReportType.VEHICLE_TYPE_FREQUENCIES ) );
+		}
 
 		//task6:
 		System.out.println("Fraction of collisions by hour:");
-		System.out.println(list.getHourlyStats());
+		System.out.println( results.get( ReportType.HOURLY_STATS ) );
+	}
 
-		elapsedTime2 =  System.nanoTime() - startTimer; 
-		
-		System.out.println("\n\n============================================\n");
-		System.out.printf("Reading and storing data: %,15d nanoseconds\n", elapsedTime1);
-		System.out.printf("Computation of results  : %,15d nanoseconds\n", elapsedTime2);
 
-		fin.close();
+	/*
+	 * Prints the number and percentage of collisions of every borough, followed by 
+	 * the zip codes of the borough with the most collisions. 
+	 */
+	private static void printBoroughReports(CollisionList list) {
+		int totalNumOfCollisions = 0;
+		for (Borough borough : Borough.values()) {
+			totalNumOfCollisions += list.getBoroughStats(borough).getTotalNumOfCollisions();
+		}
+
+		System.out.println("Number and percentage of collisions by borough:");
+		for (Borough borough : Borough.values()) {
+			int count = list.getBoroughStats(borough).getTotalNumOfCollisions();
+			System.out.printf("    %-13s %8d %6.2f%%\n", borough == Borough.UNKNOWN ? "(unknown)" : borough.getName(), 
+					count, (float)(count)/totalNumOfCollisions*100);
+		}
+		System.out.println();
 
+		for (Borough borough : Borough.values()) {
+			if (borough == Borough.UNKNOWN) {
+				continue;
+			}
+			System.out.printf("ZIP codes in %s with the largest number of collisions:\n", borough.getName());
+			System.out.println( list.getReports( EnumSet.of( ReportType.MOST_COLLISIONS ), 3, borough )
+					.get( ReportType.MOST_COLLISIONS ) );
+		}
+	}
+
+
+	/*
+	 * Creates the list the input file is read into, a ConcurrentCollisionList with the 
+	 * given number of stripes if concurrent is true, and sets it up to reject duplicates, 
+	 * keep the records off the heap and record metrics if asked for. 
+	 */
+	private static CollisionList newList(boolean concurrent, int numOfThreads, boolean retainRecords, 
+			boolean dedup, boolean offHeap, CollisionMetrics metrics) {
+		CollisionList list = concurrent ? new ConcurrentCollisionList(numOfThreads) : new CollisionList(retainRecords);
+		list.setDeduplication(dedup);
+		list.setOffHeap(offHeap);
+		list.setMetrics(metrics);
+		return list;
+	}
+
+	/*
+	 * Reads the whole input file, prints the results and then keeps checking the file
+	 * for appended lines. Only the new lines are parsed and added to the list, the 
+	 * results are printed again whenever new records have been added. 
+	 * Runs until the program is stopped. 
+	 */
+	private static void follow(File fileName, int numOfEntries, int seconds, 
+			boolean allVehicleTypes, boolean retainRecords, boolean dedup, boolean offHeap, 
+			CollisionMetrics metrics) throws IOException {
+		CollisionList list = newList(false, 1, retainRecords, dedup, offHeap, metrics);
+		CollisionFileFollower follower = new CollisionFileFollower(fileName, list, numOfEntries);
+		long startTimer = System.nanoTime();
+		int numAdded = follower.poll();
+
+		while (true) {
+			long elapsedTime1 = System.nanoTime() - startTimer;
+			if (numAdded > 0) {
+				startTimer = System.nanoTime();
+				printReports(list, allVehicleTypes);
+				long elapsedTime2 = System.nanoTime() - startTimer;
+
+				System.out.println("\n\n============================================\n");
+				System.out.printf("Records added: %,d (read up to byte %,d)\n", numAdded, 
+						follower.getOffset());
+				System.out.printf("Reading and storing data: %,15d nanoseconds\n", elapsedTime1);
+				System.out.printf("Computation of results  : %,15d nanoseconds\n", elapsedTime2);
+				if (dedup) {
+					System.out.printf("Duplicate records dropped: %,d\n", list.getNumOfDuplicates());
+				}
+				System.out.println();
+			}
+			try {
+				Thread.sleep(seconds * 1000L);
+			}
+			catch (InterruptedException ex) {
+				return;
+			}
+			startTimer = System.nanoTime();
+			numAdded = follower.poll();
+		}
 	}
 
 
 	/**
 	 * Splits a given line according to commas (commas within entries are ignored) 
+	 * The main method uses the allocation-free CsvTokenizer instead, which splits 
+	 * lines the same way. 
 	 * @param textLine line of text to be parsed 
 	 * @return an ArrayList object containing all individual entries/tokens
 	 * found on the line. 
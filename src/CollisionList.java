@@ -1,26 +1,167 @@
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * CollisionList class stores a list of collisions. The organization of this list is
  * based on the zip code associated with a given collision. This organization simplifies 
  * processing of collisions that occur within a particular zip code. 
+ * A CollisionList can be created in streaming mode, in which the collisions are not 
+ * kept once they have been added to the totals and counts of their zip code and 
+ * borough. The memory of such a list depends only on the number of zip codes, all 
+ * reports are computed the same way, but the queries that need the individual 
+ * collisions (date ranges, locations, snapshots) are not supported. 
+ * The collisions kept are stored on the heap unless setOffHeap() is called. 
  * @author Aaron Walker and Joanna K. 
  */
 
 public class CollisionList {
 	
-	private HashMap< String , ZipCodeList > list;
+	//vehicle types reported by getVehicleTypeStats
+	private static final String [] VEHICLE_TYPES = 
+		{ "taxi", "bus", "bicycle", "fire truck", "ambulance" };
+
+	/** Default number of zip codes below which parallel queries run sequentially. */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 16;
+
+	/** Default number of report results kept by the report cache. */
+	public static final int DEFAULT_REPORT_CACHE_SIZE = 64;
+
+	private ZipCodeDirectory list;
+	//pool running the queries, null if they run sequentially
+	private ForkJoinPool queryPool;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	//totals of every borough, updated as collisions are added
+	private final EnumMap<Borough, BoroughStats> boroughStats;
+	//zip codes of every borough, see ZipCodeList.getBorough()
+	private final EnumMap<Borough, TreeSet<ZipCodeList>> zipsByBorough;
+	//false in streaming mode
+	private final boolean retainRecords;
+	//locations of the collisions, null in streaming mode
+	private final SpatialGrid grid;
+	//true if the collisions are kept outside of the heap
+	private boolean offHeap;
+	//unique keys seen so far, null unless duplicates are rejected
+	private UniqueKeyFilter uniqueKeys;
+	//number of changes of the data, the version of the cached reports
+	private long modCount;
+	//results of the reports, null if they are not cached
+	private ReportCache reportCache = new ReportCache(DEFAULT_REPORT_CACHE_SIZE);
+	//counts and durations of loading and querying, null if they are not recorded
+	private CollisionMetrics metrics;
 	/**
 	 * Creates an empty CollisionList object. 
 	 */
 	public CollisionList() {
-		list = new HashMap< String, ZipCodeList >();
+		this(true);
+	}
+
+	/**
+	 * Creates an empty CollisionList object. 
+	 * @param retainRecords true if the collisions should be kept, false for a list in 
+	 * streaming mode that keeps only the totals and counts needed by the reports 
+	 */
+	public CollisionList( boolean retainRecords ) {
+		this(new ZipCodeDirectory(), retainRecords);
+	}
+
+	/*
+	 * Creates a CollisionList object using the given directory. Subclasses that keep 
+	 * their zip codes in a different structure pass null and override add(Collision), 
+	 * zipCodeLists() and addZipCodeList(). 
+	 */
+	CollisionList ( ZipCodeDirectory directory ) {
+		this(directory, true);
+	}
+
+	/*
+	 * Creates a CollisionList object using the given directory that keeps the 
+	 * collisions unless retainRecords is false. 
+	 */
+	private CollisionList ( ZipCodeDirectory directory, boolean retainRecords ) {
+		list = directory;
+		this.retainRecords = retainRecords;
+		grid = retainRecords ? new SpatialGrid() : null;
+		boroughStats = new EnumMap<Borough, BoroughStats>(Borough.class);
+		zipsByBorough = new EnumMap<Borough, TreeSet<ZipCodeList>>(Borough.class);
+		for (Borough borough : Borough.values()) {
+			boroughStats.put(borough, new BoroughStats(borough));
+			zipsByBorough.put(borough, new TreeSet<ZipCodeList>());
+		}
+	}
+
+	/**
+	 * Saves this CollisionList object to a binary snapshot file that can be loaded 
+	 * much faster than the original data can be parsed. 
+	 * @param file the snapshot file to be written 
+	 * @throws IOException if the file cannot be written 
+	 * @throws UnsupportedOperationException if this list is in streaming mode 
+	 * @see CollisionSnapshot 
+	 */
+	public void save ( File file ) throws IOException, UnsupportedOperationException {
+		if (!retainRecords) 
+			throw new UnsupportedOperationException("Error: a list in streaming mode cannot be saved. ");
+		CollisionSnapshot.save(this, file);
+	}
+
+	/**
+	 * Loads a CollisionList object from a binary snapshot file written by save(). 
+	 * @param file the snapshot file to be read 
+	 * @return the CollisionList object stored in the file 
+	 * @throws IOException if the file cannot be read or is not a valid snapshot 
+	 * @see CollisionSnapshot 
+	 */
+	public static CollisionList load ( File file ) throws IOException {
+		return CollisionSnapshot.load(file);
+	}
+
+	/*
+	 * Returns the ZipCodeList objects of this CollisionList object in ascending order 
+	 * of zip codes. 
+	 */
+	Iterable<ZipCodeList> zipCodeLists ( ) {
+		return list;
+	}
+
+	/*
+	 * Returns the ZipCodeList object of the given zip code, or null if this 
+	 * CollisionList object has no collisions from that zip code. 
+	 */
+	ZipCodeList getZipCodeList ( int zipCode ) {
+		return list.get(zipCode);
+	}
+
+	/*
+	 * Adds a complete ZipCodeList object whose zip code is not yet present in this
+	 * CollisionList object. 
+	 */
+	void addZipCodeList ( ZipCodeList zipList ) {
+		list.put(zipList);
+		zipsByBorough.get(zipList.getBorough()).add(zipList);
+		for (Collision col : zipList) {
+			boroughStats.get(col.getBoroughValue()).add(col);
+			if (grid != null) 
+				grid.add(col.getLatitude(), col.getLongitude());
+		}
+		modified();
+	}
+
+	/*
+	 * Returns the ZipCodeList objects of the given borough in ascending order of zip 
+	 * codes. 
+	 */
+	Iterable<ZipCodeList> zipCodeLists ( Borough borough ) {
+		return zipsByBorough.get(borough);
 	}
 
 
@@ -31,8 +172,8 @@ public class CollisionList {
 	 * time
 	 * borough
 	 * zip
-	 * lattitude^
-	 * longitude ^
+	 * lattitude
+	 * longitude
 	 * on street name^
 	 * cross street name ^
 	 * personsInjured
@@ -56,26 +197,571 @@ public class CollisionList {
 	 * problem occurred and the record was not added 
 	 */
 	public boolean add ( ArrayList<String> record ) {
+		return add(Collision.parse(record, metrics));
+	}
 
-		try{
-			Collision col = new Collision(record);
-			ZipCodeList tmp = new ZipCodeList(col);
-			String zip = col.getZip();
+	/**
+	 * Adds a particular record, held by a tokenizer, to this CollisionList object.
+	 * The entries of the tokenizer should be in the same order as for the 
+	 * add(ArrayList) method. 
+	 * @param record a tokenizer holding the entries describing a particular collision 
+	 * @return true if the record was added to this CollisionList object, false if any 
+	 * problem occurred and the record was not added 
+	 */
+	public boolean add ( CsvTokenizer record ) {
+		return add(Collision.parse(record, metrics));
+	}
 
-			if( list.containsKey(zip) ){
-				list.put(zip, list.get(zip).add(col));
+	/**
+	 * Adds an already created Collision object to this CollisionList object. 
+	 * @param col the Collision object to be added 
+	 * @return true if the collision was added to this CollisionList object, false 
+	 * otherwise 
+	 */
+	public boolean add ( Collision col ) {
+		if (col == null) return false;
+		if (isDuplicate(col)) 
+			return false; //already added
+		long start = metrics == null ? 0 : System.nanoTime();
+
+		ZipCodeList zipList = list.get(col.getZipCode());
+
+		if( zipList != null ){
+			Borough before = zipList.getBorough();
+			zipList.add(col);
+			Borough after = zipList.getBorough();
+			if (after != before) {
+				//most collisions of this zip code are now reported in another borough
+				zipsByBorough.get(before).remove(zipList);
+				zipsByBorough.get(after).add(zipList);
 			}
-			else{
-				list.put(zip, tmp);
+		}
+		else{
+			zipList = new ZipCodeList(col, newRecordStore(col.getZip()));
+			list.put(zipList);
+			zipsByBorough.get(zipList.getBorough()).add(zipList);
+		}
+		boroughStats.get(col.getBoroughValue()).add(col);
+		if (grid != null) 
+			grid.add(col.getLatitude(), col.getLongitude());
+		modified();
+		if (metrics != null) 
+			metrics.record(IngestPhase.ADD, System.nanoTime() - start);
+
+		return true; //return true to indicate that the object was added
+	}
+
+	/**
+	 * Adds the collisions of another CollisionList object to this object, for example 
+	 * a part of the data loaded separately. Zip codes present in only one of the lists 
+	 * are taken over without copying their collisions, the totals and counts of zip 
+	 * codes present in both are summed and their collisions are appended to the ones 
+	 * of this object. The resulting reports are the same as if all collisions of the 
+	 * other list had been added to this object after its own collisions. 
+	 * The other list shares its zip codes with this object afterwards, it should not 
+	 * be used any more. 
+	 * If this object rejects duplicates (see setDeduplication()), the zip codes are 
+	 * taken over only if the other list rejects duplicates as well and none of its 
+	 * unique keys has been seen by this object, otherwise its collisions are added 
+	 * one by one and the duplicates among them are rejected. 
+	 * @param other the CollisionList object to be merged into this object 
+	 * @throws IllegalArgumentException if one of the lists is in streaming mode and 
+	 * the other one is not 
+	 * @throws UnsupportedOperationException if the collisions of a list in streaming 
+	 * mode would have to be added one by one 
+	 */
+	public void merge ( CollisionList other ) throws IllegalArgumentException, UnsupportedOperationException {
+		if (other.retainRecords != retainRecords) 
+			throw new IllegalArgumentException("Error: cannot merge a list in streaming mode with one that is not. ");
+		UniqueKeyFilter otherKeys = other.getUniqueKeyFilter();
+		if (other.list == null || (uniqueKeys != null 
+				&& (otherKeys == null || uniqueKeys.containsAny(otherKeys)))) {
+			//a subclass keeping its zip codes in its own structure, or possible duplicates
+			for (ZipCodeList zipList : other.zipCodeLists()) {
+				for (Collision col : zipList) 
+					add(col);
+			}
+			if (uniqueKeys != null && otherKeys != null) 
+				uniqueKeys.addNumOfDuplicates(otherKeys.getNumOfDuplicates());
+			return;
+		}
+		if (uniqueKeys != null) 
+			uniqueKeys.addAll(otherKeys);
+
+		for (ZipCodeList otherZipList : other.zipCodeLists()) {
+			ZipCodeList zipList = list.get(otherZipList.getZipCode());
+			if (zipList == null) {
+				list.put(otherZipList);
+				zipsByBorough.get(otherZipList.getBorough()).add(otherZipList);
+				continue;
 			}
+			Borough before = zipList.getBorough();
+			zipList.addAll(otherZipList);
+			Borough after = zipList.getBorough();
+			if (after != before) {
+				zipsByBorough.get(before).remove(zipList);
+				zipsByBorough.get(after).add(zipList);
+			}
+		}
+		for (Borough borough : Borough.values()) 
+			boroughStats.get(borough).addAll(other.boroughStats.get(borough));
+		if (grid != null) 
+			grid.addAll(other.grid);
+		modified();
+	}
+
+	/**
+	 * Makes this CollisionList object reject the collisions whose unique key has already 
+	 * been added, for example rows delivered twice or present in two overlapping data 
+	 * files. The keys are kept as long values in an open addressing hash set, a few 
+	 * bytes per key, also in streaming mode. 
+	 * @param deduplicate true to reject duplicates, false to accept them 
+	 * @throws IllegalStateException if duplicates should be rejected and this list 
+	 * already holds collisions 
+	 * @see UniqueKeyFilter 
+	 */
+	public void setDeduplication ( boolean deduplicate ) throws IllegalStateException {
+		if (!deduplicate) {
+			uniqueKeys = null;
+		}
+		else if (uniqueKeys == null) {
+			if (zipCodeLists().iterator().hasNext()) 
+				throw new IllegalStateException("Error: deduplication has to be set before adding collisions. ");
+			uniqueKeys = newUniqueKeyFilter();
 		}
-		catch(IllegalArgumentException ex){
+	}
+
+	/**
+	 * Makes this CollisionList object keep its collisions outside of the Java heap, in 
+	 * OffHeapCollisionStore objects, so the garbage collector does not trace them and 
+	 * its pauses do not grow with the number of collisions kept. The totals and indexes 
+	 * of the zip codes stay on the heap. Zip codes taken over from another list by 
+	 * merge() keep the store of that list. A list in streaming mode keeps no 
+	 * collisions, this setting has no effect on it. 
+	 * @param offHeap true to keep the collisions off the heap, false to keep them in 
+	 * arrays on the heap 
+	 * @throws IllegalStateException if the setting is changed and this list already 
+	 * holds collisions 
+	 * @throws UnsupportedOperationException if this list cannot keep its collisions 
+	 * off the heap 
+	 * @see OffHeapCollisionStore 
+	 */
+	public void setOffHeap ( boolean offHeap ) throws IllegalStateException, UnsupportedOperationException {
+		if (offHeap != this.offHeap && zipCodeLists().iterator().hasNext()) 
+			throw new IllegalStateException("Error: the storage of the collisions has to be set before adding collisions. ");
+		this.offHeap = offHeap;
+	}
+
+	/*
+	 * Creates the empty store keeping the collisions of a new zip code, or returns null 
+	 * in streaming mode. 
+	 */
+	private RecordStore newRecordStore ( String zip ) {
+		if (!retainRecords) 
+			return null;
+		return offHeap ? new OffHeapCollisionStore(zip) : new CollisionStore(zip);
+	}
+
+	/**
+	 * Returns the number of collisions rejected because their unique key had already 
+	 * been added. 
+	 * @return the number of duplicates, 0 unless duplicates are rejected 
+	 */
+	public long getNumOfDuplicates ( ) {
+		return uniqueKeys == null ? 0 : uniqueKeys.getNumOfDuplicates();
+	}
+
+	/*
+	 * Returns true if duplicates are rejected and the unique key of the given collision 
+	 * has already been added, in which case the duplicate is counted. 
+	 */
+	boolean isDuplicate ( Collision col ) {
+		if (uniqueKeys == null || uniqueKeys.add(col)) 
 			return false;
+		if (metrics != null) 
+			metrics.count(RecordStatus.DUPLICATE);
+		return true;
+	}
+
+	/*
+	 * Returns the filter rejecting the duplicates, or null if duplicates are accepted. 
+	 */
+	UniqueKeyFilter getUniqueKeyFilter ( ) {
+		return uniqueKeys;
+	}
 
+	/*
+	 * Creates the filter used when duplicates are rejected. Subclasses that are filled 
+	 * by several threads return a filter with several stripes. 
+	 */
+	UniqueKeyFilter newUniqueKeyFilter ( ) {
+		return new UniqueKeyFilter(1);
+	}
+
+	/*
+	 * Records a change of the data, so the cached reports are computed again. Called 
+	 * after the data has been changed, so a report computed from a version of the data 
+	 * cannot miss a change made before that version was counted. 
+	 */
+	void modified ( ) {
+		modCount++;
+	}
+
+	/*
+	 * Returns the number of changes of the data so far. 
+	 */
+	long getModCount ( ) {
+		return modCount;
+	}
+
+	/**
+	 * Makes this CollisionList object and the readers adding collisions to it record 
+	 * their counts and durations into the given metrics: the time taken by every 
+	 * collision added and by every query, the duplicates rejected and, in the readers, 
+	 * the lines and bytes read and the lines rejected. 
+	 * @param metrics the metrics, or null to stop recording 
+	 */
+	public void setMetrics ( CollisionMetrics metrics ) {
+		this.metrics = metrics;
+	}
+
+	/*
+	 * Returns the metrics recorded by this object and its readers, or null. 
+	 */
+	CollisionMetrics getMetrics ( ) {
+		return metrics;
+	}
+
+	/*
+	 * Returns the time a query starts, if queries are timed. 
+	 */
+	private long startQuery ( ) {
+		return metrics == null ? 0 : System.nanoTime();
+	}
+
+	/*
+	 * Records the duration of a query that started at start, if queries are timed. 
+	 */
+	private void endQuery ( String query, long start ) {
+		if (metrics != null) 
+			metrics.recordQuery(query, System.nanoTime() - start);
+	}
+
+	/**
+	 * Sets the number of report results kept by this CollisionList object. The 
+	 * results of getReports() and of the methods computing a single report are cached, 
+	 * keyed by the report, k and the borough, until a collision is added, so a report 
+	 * asked for again on unchanged data costs a map lookup. When more results are 
+	 * cached the least recently used one is discarded. 
+	 * @param size the number of results, 0 to compute every report again 
+	 * @throws IllegalArgumentException if size is negative 
+	 */
+	public void setReportCacheSize ( int size ) throws IllegalArgumentException {
+		if (size < 0) 
+			throw new IllegalArgumentException("Error: cache size cannot be negative. ");
+		reportCache = size == 0 ? null : new ReportCache(size);
+	}
+
+	/**
+	 * Computes several reports in a single pass over the zip codes of this CollisionList 
+	 * object. The rankings are updated for every zip code and the statistics are 
+	 * summed from the per-minute and per-vehicle-type counts that every ZipCodeList 
+	 * keeps up to date as collisions are added, so no individual collision is visited 
+	 * and the cost does not grow with the number of collisions. 
+	 * When parallel queries are enabled (see setParallelQueries()) the zip codes are 
+	 * split among several tasks, with the same results. 
+	 * Only the reports that are not cached are computed (see setReportCacheSize()). 
+	 * @param reports the reports to be computed 
+	 * @param k number of zip codes selected by the ranking reports 
+	 * @return a map from each requested report to its result, formatted the same way
+	 * as by the method computing that report alone 
+	 */
+	public EnumMap<ReportType, String> getReports ( Set<ReportType> reports, int k ) {
+		return getCachedReports(reports, k, null);
+	}
+
+	/**
+	 * Computes several reports over the collisions of a single borough. The rankings 
+	 * select among the zip codes of the borough (see ZipCodeList.getBorough()), the 
+	 * statistics are taken from the totals of the borough, which are kept up to date as 
+	 * collisions are added, so they include exactly the collisions reported in the 
+	 * borough and nothing has to be summed. 
+	 * Only the reports that are not cached are computed (see setReportCacheSize()). 
+	 * @param reports the reports to be computed 
+	 * @param k number of zip codes selected by the ranking reports 
+	 * @param borough the borough 
+	 * @return a map from each requested report to its result, formatted the same way 
+	 * as by getReports(Set, int) 
+	 */
+	public EnumMap<ReportType, String> getReports ( Set<ReportType> reports, int k, Borough borough ) {
+		return getCachedReports(reports, k, borough);
+	}
+
+	/*
+	 * Looks up the requested reports in the cache and computes the missing ones, over 
+	 * all zip codes if borough is null. 
+	 */
+	private EnumMap<ReportType, String> getCachedReports ( Set<ReportType> reports, int k, Borough borough ) {
+		long start = startQuery();
+		EnumMap<ReportType, String> result = lookUpReports(reports, k, borough);
+		String query = reports.size() == 1 ? reports.iterator().next().getName() : "reports";
+		endQuery(borough == null ? query : query + " by borough", start);
+		return result;
+	}
+
+	/*
+	 * Looks up the requested reports in the cache and computes the missing ones. 
+	 */
+	private EnumMap<ReportType, String> lookUpReports ( Set<ReportType> reports, int k, Borough borough ) {
+		ReportCache cache = reportCache;
+		if (cache == null) 
+			return computeReports(reports, k, borough);
+		//read before computing, so results missing later changes are not used
+		long version = getModCount();
+		EnumMap<ReportType, String> result = new EnumMap<ReportType, String>(ReportType.class);
+		EnumSet<ReportType> missing = EnumSet.noneOf(ReportType.class);
+		for (ReportType report : reports) {
+			String cached = cache.get(report, k, borough, version);
+			if (cached != null) 
+				result.put(report, cached);
+			else 
+				missing.add(report);
+		}
+		if (!missing.isEmpty()) {
+			EnumMap<ReportType, String> computed = computeReports(missing, k, borough);
+			for (Map.Entry<ReportType, String> entry : computed.entrySet()) 
+				cache.put(entry.getKey(), k, borough, version, entry.getValue());
+			result.putAll(computed);
 		}
+		return result;
+	}
 
-		return true; //return true to indicate that the object was added
+	/*
+	 * Computes the given reports over all zip codes if borough is null, otherwise over 
+	 * the zip codes and the totals of the borough. 
+	 */
+	private EnumMap<ReportType, String> computeReports ( Set<ReportType> reports, int k, Borough borough ) {
+		if (borough != null) {
+			PartialReports result = new PartialReports(reports, k);
+			for (ZipCodeList l : zipCodeLists(borough) ) 
+				result.rank(l);
+			BoroughStats stats = getBoroughStats(borough);
+			result.count(stats.getTotalNumOfCollisions(), stats.getCollisionsByVehicleType(), 
+					stats.getCollisionsByMinute());
+			return result.format();
+		}
+		PartialReports result;
+		if (queryPool == null) {
+			result = new PartialReports(reports, k);
+			for (ZipCodeList l : zipCodeLists() ) 
+				result.add(l);
+		}
+		else {
+			ArrayList<ZipCodeList> zipLists = new ArrayList<ZipCodeList>();
+			for (ZipCodeList l : zipCodeLists() ) 
+				zipLists.add(l);
+			ReportTask task = new ReportTask(reports, k, zipLists, 0, zipLists.size(), parallelThreshold);
+			//small lists are not worth handing to the pool
+			result = zipLists.size() <= parallelThreshold ? task.compute() : queryPool.invoke(task);
+		}
+		return result.format();
+	}
+
+	/**
+	 * Returns the totals of the collisions reported in the given borough. The totals 
+	 * are kept up to date as collisions are added. 
+	 * @param borough the borough 
+	 * @return the totals of the borough, the returned object should not be modified 
+	 */
+	public BoroughStats getBoroughStats ( Borough borough ) {
+		return boroughStats.get(borough);
+	}
+
+	/**
+	 * Counts the collisions located within the given bounds, the bounds included. 
+	 * The locations are indexed in a grid covering NYC, so only the cells overlapping 
+	 * the bounds are visited. Collisions without a location or located outside of NYC 
+	 * are not counted. 
+	 * @param minLatitude southern bound 
+	 * @param minLongitude western bound 
+	 * @param maxLatitude northern bound 
+	 * @param maxLongitude eastern bound 
+	 * @return the number of collisions 
+	 * @throws UnsupportedOperationException if this list is in streaming mode 
+	 */
+	public int getNumOfCollisionsInBox ( double minLatitude, double minLongitude, 
+			double maxLatitude, double maxLongitude ) throws UnsupportedOperationException {
+		long start = startQuery();
+		int result = countInBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+		endQuery("box", start);
+		return result;
+	}
+
+	/**
+	 * Counts the collisions located at most the given distance from a point. Only the 
+	 * cells of the grid overlapping the circle are visited. Collisions without a 
+	 * location or located outside of NYC are not counted. 
+	 * @param latitude latitude of the point 
+	 * @param longitude longitude of the point 
+	 * @param meters the distance in meters 
+	 * @return the number of collisions 
+	 * @throws UnsupportedOperationException if this list is in streaming mode 
+	 */
+	public int getNumOfCollisionsWithin ( double latitude, double longitude, double meters ) 
+			throws UnsupportedOperationException {
+		long start = startQuery();
+		int result = countWithin(latitude, longitude, meters);
+		endQuery("radius", start);
+		return result;
+	}
+
+	/**
+	 * Determines k cells of the grid indexing the locations of the collisions (squares 
+	 * of about 550 by 420 meters) with the most collisions. 
+	 * @param k number of cells with the highest number of collisions 
+	 * @return a string formatted as 
+	 *     latitude,longitude  numOfCollisions 
+	 *  one per line, with the center of each of the k cells with the most collisions 
+	 * @throws UnsupportedOperationException if this list is in streaming mode 
+	 */
+	public String getDensestCells ( int k ) throws UnsupportedOperationException {
+		long start = startQuery();
+		String result = densestCells(k);
+		endQuery("densest cells", start);
+		return result;
+	}
+
+	/*
+	 * Counts the collisions within the bounds. Subclasses keeping the locations in 
+	 * several grids override the three spatial queries. 
+	 */
+	int countInBox ( double minLatitude, double minLongitude, double maxLatitude, double maxLongitude ) 
+			throws UnsupportedOperationException {
+		return getSpatialGrid().countInBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
+	/*
+	 * Counts the collisions within the given distance of the point. 
+	 */
+	int countWithin ( double latitude, double longitude, double meters ) throws UnsupportedOperationException {
+		return getSpatialGrid().countWithin(latitude, longitude, meters);
+	}
+
+	/*
+	 * Formats the k cells of the grid with the most collisions. 
+	 */
+	String densestCells ( int k ) throws UnsupportedOperationException {
+		return getSpatialGrid().getDensestCells(k);
+	}
+
+	/*
+	 * Returns the grid indexing the locations of the collisions. 
+	 */
+	private SpatialGrid getSpatialGrid ( ) throws UnsupportedOperationException {
+		if (grid == null) 
+			throw new UnsupportedOperationException("Error: locations are not kept in streaming mode. ");
+		return grid;
+	}
+
+	/**
+	 * Computes the totals of the collisions from the given zip code that occurred 
+	 * between the given dates. The totals are looked up in the date index of the zip 
+	 * code, so the cost does not grow with the number of collisions. 
+	 * @param zip the zip code 
+	 * @param fromDate the first date of the range, formatted as month/day/year 
+	 * @param toDate the last date of the range, formatted as month/day/year 
+	 * @return the totals of the collisions within the range 
+	 * @throws IllegalArgumentException if the zip code or one of the dates is not valid 
+	 * @throws UnsupportedOperationException if this list is in streaming mode 
+	 */
+	public DateRangeTotals getTotals ( String zip, String fromDate, String toDate ) 
+			throws IllegalArgumentException, UnsupportedOperationException {
+		if (!retainRecords) 
+			throw new UnsupportedOperationException("Error: dates are not kept in streaming mode. ");
+		long start = startQuery();
+		int fromDay = toEpochDay(fromDate);
+		int toDay = toEpochDay(toDate);
+		ZipCodeList zipList = getZipCodeList(toZipCode(zip));
+		DateRangeTotals result = zipList == null 
+				? new DateRangeTotals(fromDay, toDay, 0, new int [CollisionStore.NUM_OF_COUNTS]) 
+				: zipList.getTotals(fromDay, toDay);
+		endQuery("date range totals", start);
+		return result;
+	}
 
+	/**
+	 * Computes the number of collisions from the given zip code involving the given 
+	 * vehicle type that occurred between the given dates. 
+	 * @param zip the zip code 
+	 * @param vehicleType the name of the vehicle type, matched without regard to case 
+	 * @param fromDate the first date of the range, formatted as month/day/year 
+	 * @param toDate the last date of the range, formatted as month/day/year 
+	 * @return the number of collisions 
+	 * @throws IllegalArgumentException if the zip code or one of the dates is not valid 
+	 * @throws UnsupportedOperationException if this list is in streaming mode 
+	 */
+	public int getNumOfCollisions ( String zip, String vehicleType, String fromDate, String toDate ) 
+			throws IllegalArgumentException, UnsupportedOperationException {
+		if (!retainRecords) 
+			throw new UnsupportedOperationException("Error: dates are not kept in streaming mode. ");
+		long start = startQuery();
+		int fromDay = toEpochDay(fromDate);
+		int toDay = toEpochDay(toDate);
+		ZipCodeList zipList = getZipCodeList(toZipCode(zip));
+		int result = zipList == null ? 0 : zipList.getNumOfCollisions(vehicleType, fromDay, toDay);
+		endQuery("date range count", start);
+		return result;
+	}
+
+	/*
+	 * Converts a date given to one of the date range queries to an epoch day. 
+	 */
+	private static int toEpochDay ( String date ) throws IllegalArgumentException {
+		int day = Collision.parseEpochDay(date);
+		if (day == Collision.NO_DATE) 
+			throw new IllegalArgumentException("Error: invalid date " + date + ". ");
+		return day;
+	}
+
+	/*
+	 * Converts a zip code given to one of the date range queries to its integer value. 
+	 */
+	private static int toZipCode ( String zip ) throws IllegalArgumentException {
+		if (zip.length() != 5) 
+			throw new IllegalArgumentException("Error: invalid zip code " + zip + ". ");
+		int value = 0;
+		for (int i = 0; i < zip.length(); i++ ) {
+			int digit = Character.digit(zip.charAt(i), 10);
+			if (digit < 0) 
+				throw new IllegalArgumentException("Error: invalid zip code " + zip + ". ");
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * Makes the queries of this CollisionList object run in parallel. The zip codes 
+	 * are split into parts that are processed by separate tasks of the given pool, the 
+	 * partial results of the parts (the counters and the zip codes selected by the 
+	 * rankings) are merged in the order of the zip codes, so the results are the same 
+	 * as the ones computed sequentially. 
+	 * @param pool the pool running the queries, or null to run them sequentially 
+	 * @param threshold the number of zip codes a part has to exceed to be split further, 
+	 * lists with at most this many zip codes are processed sequentially 
+	 * @throws IllegalArgumentException if threshold is smaller than 1 
+	 */
+	public void setParallelQueries ( ForkJoinPool pool, int threshold ) throws IllegalArgumentException {
+		if (threshold < 1) 
+			throw new IllegalArgumentException("Error: threshold has to be positive. ");
+		queryPool = pool;
+		parallelThreshold = threshold;
+	}
+
+	/*
+	 * Computes a single report. 
+	 */
+	private String getReport ( ReportType report, int k ) {
+		return getReports(EnumSet.of(report), k).get(report);
 	}
 
 	/**
@@ -85,70 +771,8 @@ public class CollisionList {
 	 *     zip  numOfCollisions
 	 *  one per line, that contains k zip codes with the highest number of collisions
 	 */
-	//done
 	public String getZipCodesWithMostCollisions (int k) {
-		CompareByNumOfCollisionsAscending comp = new CompareByNumOfCollisionsAscending();
-		PriorityQueue<ZipCodeList> queue = 
-				new PriorityQueue<ZipCodeList>(3, comp );
-		//track size without counting size
-		int relSize = 0;
-		for(ZipCodeList zipList : list.values() ){
-			//if we have less than 3 with/without ties 
-			if( queue.size() < k || relSize < k){
-				//if it is one thats part of a tie add it unconditionally
-				if(queue.contains(zipList)){
-					queue.add(zipList);
-				}
-				else{
-					//if it is not a part of a tie add and increase relSize
-					queue.add(zipList);
-					relSize++;
-				}
-			}
-			//at the 'max' allowed elements
-			else {
-				//if the one being added is equal to the smallest 
-				if( 0 == comp.compare(zipList, queue.peek()) ){
-					queue.add(zipList);//add it
-				}
-				//if its greater than the smallest but is already inside the queue
-				else if ( comp.compare(queue.peek(), zipList) < 0 && 
-						CollisionList.containsNumCollisions(queue, zipList.getTotalNumOfCollisions())){
-					queue.add(zipList); //add it
-				}
-				//if its greater than the smallest but is not already in the queue...tricky
-				else if( comp.compare(queue.peek(), zipList) < 0 && 
-						!CollisionList.containsNumCollisions(queue, zipList.getTotalNumOfCollisions()) ){
-					ZipCodeList smallest = queue.peek();//track smallest
-					do{
-						//remove the smallest
-						queue.poll();
-						//do we need to resize the RELATIVE size?
-						if( relSize < 3 ){
-							relSize--;
-						}
-						//loop whenever the size is great enough to remove and if either the current head is smaller than the smallest
-						//or the queue contains another mention of the smallest element...ties!
-					}while( queue.size() > 0 && 
-							(comp.compare(queue.peek(), smallest) < 0 ||
-							CollisionList.containsNumCollisions(queue, smallest.getTotalNumOfCollisions()) ));
-					queue.add(zipList);//add the one we wanted to...
-				}
-			}
-
-		}
-
-		StringBuffer result = new StringBuffer();
-
-		while(!queue.isEmpty()){
-			ZipCodeList current = queue.peek();
-			String zip = current.getZip();
-			int numCollisions = current.getTotalNumOfCollisions();
-			result.append(String.format("    %5s  %5d collisions\n", zip,
-					numCollisions));
-			queue.poll();
-		}
-		return result.toString();
+		return getReport(ReportType.MOST_COLLISIONS, k);
 	}
 
 	/**
@@ -159,64 +783,7 @@ public class CollisionList {
 	 *  one per line, that contains k zip codes with the lowest number of collisions
 	 */
 	public String getZipCodesWithLeastCollisions (int k) {
-		//uses the same algorithm as above just reveresed to get the lowest number
-		CompareByNumOfCollisionsAscending compA = new CompareByNumOfCollisionsAscending();
-		CompareByNumOfCollisionsDescending comp = new CompareByNumOfCollisionsDescending();
-		PriorityQueue<ZipCodeList> queue = 
-				new PriorityQueue<ZipCodeList>(3, comp ) ;
-		int relSize = 0;
-		for( ZipCodeList zipList : list.values() ){
-			if(queue.size() < k || relSize < k){
-				if(queue.contains(zipList)){
-					queue.add(zipList);
-				}
-				else{
-					queue.add(zipList);
-					relSize++;
-				}
-			}
-			else{
-				if( 0 == compA.compare(zipList, queue.peek()) ){
-					queue.add(zipList);
-				}
-				else if( CollisionList.containsNumCollisions(queue, zipList.getTotalNumOfCollisions())){
-					queue.add(zipList);
-				}
-				else if( compA.compare(queue.peek(), zipList) > 0 && 
-						CollisionList.containsNumCollisions(queue, zipList.getTotalNumOfCollisions())){
-					queue.add(zipList);
-				}
-				else if( compA.compare(queue.peek(), zipList) > 0 && 
-						!CollisionList.containsNumCollisions(queue, zipList.getTotalNumOfCollisions())){
-					ZipCodeList largest = queue.peek();
-
-					do{
-						queue.poll();
-						if( relSize < k){
-							relSize --;
-						}
-					}while( queue.size() > 0 && 
-							( compA.compare(queue.peek(), largest) > 0) ||
-							CollisionList.containsNumCollisions(queue, largest.getTotalNumOfCollisions()) );
-					queue.add(zipList);
-				}
-			}
-		}
-
-		StringBuffer result = new StringBuffer();
-
-
-		while(!queue.isEmpty()){
-			ZipCodeList current = queue.peek();
-			String zip = current.getZip();
-			int numCollisions = current.getTotalNumOfCollisions();
-			result.append(String.format("    %5s  %5d collisions\n", zip,
-					numCollisions));
-			queue.poll();
-		}
-
-
-		return result.toString();
+		return getReport(ReportType.LEAST_COLLISIONS, k);
 	}
 
 
@@ -230,62 +797,7 @@ public class CollisionList {
 	 *  one per line, that contains k zip codes with the highest number of injured cyclists 
 	 */
 	public String getZipCodesWithMostCyclistIncidents ( int k ) {
-		//still the same algorithm
-		CompareByNumOfCyclistsIncidentsDescending compA = new CompareByNumOfCyclistsIncidentsDescending();
-		CompareByNumOfCyclistsIncidentsAscending comp = new CompareByNumOfCyclistsIncidentsAscending() ;
-		PriorityQueue<ZipCodeList> queue = 
-				new PriorityQueue<ZipCodeList>(3, comp );
-		int relSize = 0;
-		for(ZipCodeList zipList : list.values() ){
-			if(queue.size() < k || relSize < k){
-				if(queue.contains(zipList)){
-					queue.add(zipList);
-				}
-				else{
-					queue.add(zipList);
-					relSize++;
-				}
-			}
-			else{
-				if( 0 == compA.compare(zipList, queue.peek()) ){
-					queue.add(zipList);
-				}
-				else if( queue.contains(zipList)){
-					queue.add(zipList);
-				}
-				else if( compA.compare(queue.peek(), zipList) > 0 && 
-						CollisionList.containsNumCyclistsIncidents(queue, zipList.getTotalNumOfCyclistsInjured(), zipList.getTotalNumOfCyclistsKilled())){
-					queue.add(zipList);
-				}
-				else if( compA.compare(queue.peek(), zipList) > 0 && 
-						!CollisionList.containsNumCyclistsIncidents(queue, zipList.getTotalNumOfCyclistsInjured(), zipList.getTotalNumOfCyclistsKilled())){
-					ZipCodeList largest = queue.peek();
-
-					do{
-						queue.poll();
-						if( relSize < k){
-							relSize --;
-						}
-					}while( queue.size() > 0 && 
-							( compA.compare(queue.peek(), largest) > 0) || 
-							CollisionList.containsNumCyclistsIncidents(queue, largest.getTotalNumOfCyclistsInjured(), largest.getTotalNumOfCyclistsKilled()) );
-					queue.add(zipList);
-				}
-			}
-		}
-
-		StringBuffer result = new StringBuffer();
-		while(!queue.isEmpty()){
-			ZipCodeList current = queue.peek();
-			String zip = current.getZip();
-			int inj = current.getTotalNumOfCyclistsInjured();
-			int killed = current.getTotalNumOfCyclistsKilled();
-			result.append( String.format("    %5s  %5d (%3d killed ) cyclists hurt\n", zip,
-					inj + killed, killed ));
-			queue.poll();
-		}
-
-		return result.toString();
+		return getReport(ReportType.MOST_CYCLIST_INCIDENTS, k);
 	}
 
 
@@ -297,61 +809,114 @@ public class CollisionList {
 	 *  one per line, that contains k zip codes with the highest number of injured persons 
 	 */
 	public String getZipCodesWithMostPersonIncidents ( int k ) {
-		CompareByNumOfPersonsIncidentsDescending compA = new CompareByNumOfPersonsIncidentsDescending() ;
-		CompareByNumOfPersonsIncidentsAscending comp = new CompareByNumOfPersonsIncidentsAscending() ;
-		PriorityQueue<ZipCodeList> queue = new PriorityQueue<ZipCodeList>(10, comp) ;
-		int relSize = 0;
-		for(ZipCodeList zipList : list.values() ){
-			if(queue.size() < k || relSize < k){
-				if(queue.contains(zipList)){
-					queue.add(zipList);
-				}
-				else{
-					queue.add(zipList);
-					relSize++;
-				}
-			}
-			else{
-				if( 0 == comp.compare(zipList, queue.peek()) ){
-					queue.add(zipList);
-				}
-				else if( queue.contains(zipList)){
-					queue.add(zipList);
-				}
-				else if( compA.compare(queue.peek(), zipList) > 0 && CollisionList.containsNumPersonIncidents(queue, zipList.getTotalNumOfPersonsInjured(), zipList.getTotalNumOfPersonsKilled())){
-					queue.add(zipList);
-				}
-				else if( compA.compare(queue.peek(), zipList) > 0 && !CollisionList.containsNumPersonIncidents(queue, zipList.getTotalNumOfPersonsInjured(), zipList.getTotalNumOfPersonsKilled())){
-					ZipCodeList largest = queue.peek();
-
-					do{
-						queue.poll();
-						if( relSize < k){
-							relSize --;
-						}
-					}while( queue.size() > 0 && ( compA.compare(queue.peek(), largest) > 0) || CollisionList.containsNumPersonIncidents(queue, largest.getTotalNumOfPersonsInjured(), largest.getTotalNumOfPersonsKilled()) );
-					queue.add(zipList);
-				}
-			}
+		return getReport(ReportType.MOST_PERSON_INCIDENTS, k);
+	}
+
+	/**
+	 * Determines k zip codes with most number of injured and killed pedestrians. 
+	 * @param k number of zip codes with the highest number of injured and killed pedestrians
+	 * @return a string formatted as 
+	 *     zip  numOfPedestriansHurt  (numOfPedestrians killed) 
+	 *  one per line, that contains k zip codes with the highest number of injured pedestrians 
+	 */
+	public String getZipCodesWithMostPedestrianIncidents ( int k ) {
+		return getReport(ReportType.MOST_PEDESTRIAN_INCIDENTS, k);
+	}
+
+	/**
+	 * Determines k zip codes with most number of injured and killed motorists. 
+	 * @param k number of zip codes with the highest number of injured and killed motorists
+	 * @return a string formatted as 
+	 *     zip  numOfMotoristsHurt  (numOfMotorists killed) 
+	 *  one per line, that contains k zip codes with the highest number of injured motorists 
+	 */
+	public String getZipCodesWithMostMotoristIncidents ( int k ) {
+		return getReport(ReportType.MOST_MOTORIST_INCIDENTS, k);
+	}
+
+	/**
+	 * Determines k zip codes with most number of killed persons. 
+	 * @param k number of zip codes with the highest number of killed persons
+	 * @return a string formatted as 
+	 *     zip  numOfPersonsKilled 
+	 *  one per line, that contains k zip codes with the highest number of killed persons 
+	 */
+	public String getZipCodesWithMostFatalities ( int k ) {
+		return getReport(ReportType.MOST_FATALITIES, k);
+	}
+
+	/*
+	 * Creates the TopK object selecting the zip codes of a ranking report. 
+	 */
+	private static TopK<ZipCodeList> newRanking ( ReportType report, int k ) {
+		switch (report) {
+		case MOST_COLLISIONS:
+			return new TopK<ZipCodeList>(k, new CompareByNumOfCollisionsAscending(), RankDirection.HIGHEST);
+		case LEAST_COLLISIONS:
+			return new TopK<ZipCodeList>(k, new CompareByNumOfCollisionsAscending(), RankDirection.LOWEST);
+		case MOST_PERSON_INCIDENTS:
+			return new TopK<ZipCodeList>(k, new CompareByNumOfPersonsIncidentsAscending(), RankDirection.HIGHEST);
+		case MOST_CYCLIST_INCIDENTS:
+			return new TopK<ZipCodeList>(k, new CompareByNumOfCyclistsIncidentsAscending(), RankDirection.HIGHEST);
+		case MOST_PEDESTRIAN_INCIDENTS:
+			return new TopK<ZipCodeList>(k, new CompareByNumOfPedestriansIncidentsAscending(), RankDirection.HIGHEST);
+		case MOST_MOTORIST_INCIDENTS:
+			return new TopK<ZipCodeList>(k, new CompareByNumOfMotoristsIncidentsAscending(), RankDirection.HIGHEST);
+		case MOST_FATALITIES:
+			return new TopK<ZipCodeList>(k, ZipCodeList::getTotalNumOfPersonsKilled, RankDirection.HIGHEST);
+		default:
+			throw new IllegalArgumentException("Error: " + report + " is not a ranking. ");
 		}
+	}
 
+	/*
+	 * Formats the zip codes selected by a ranking report, one per line. 
+	 */
+	private static String formatRanking ( ReportType report, Iterable<ZipCodeList> zipLists ) {
 		StringBuffer result = new StringBuffer();
-	
-		while(!queue.isEmpty()){
-			ZipCodeList current = queue.peek();
+		for (ZipCodeList current : zipLists) {
 			String zip = current.getZip();
-			int inj = current.getTotalNumOfPersonsInjured();
-			int killed = current.getTotalNumOfPersonsKilled();
-			result.append( String.format("    %5s  %5d (%3d killed ) persons hurt\n", zip,
-					inj + killed, killed ));
-			queue.poll();
+			switch (report) {
+			case MOST_COLLISIONS:
+			case LEAST_COLLISIONS:
+				result.append(String.format("    %5s  %5d collisions\n", zip,
+						current.getTotalNumOfCollisions()));
+				break;
+			case MOST_PERSON_INCIDENTS:
+				result.append( formatIncidents(zip, current.getTotalNumOfPersonsInjured(),
+						current.getTotalNumOfPersonsKilled(), "persons"));
+				break;
+			case MOST_CYCLIST_INCIDENTS:
+				result.append( formatIncidents(zip, current.getTotalNumOfCyclistsInjured(),
+						current.getTotalNumOfCyclistsKilled(), "cyclists"));
+				break;
+			case MOST_PEDESTRIAN_INCIDENTS:
+				result.append( formatIncidents(zip, current.getTotalNumOfPedestriansInjured(),
+						current.getTotalNumOfPedestriansKilled(), "pedestrians"));
+				break;
+			case MOST_MOTORIST_INCIDENTS:
+				result.append( formatIncidents(zip, current.getTotalNumOfMotoristsInjured(),
+						current.getTotalNumOfMotoristsKilled(), "motorists"));
+				break;
+			case MOST_FATALITIES:
+				result.append( String.format("    %5s  %5d persons killed\n", zip,
+						current.getTotalNumOfPersonsKilled() ));
+				break;
+			default:
+				throw new IllegalArgumentException("Error: " + report + " is not a ranking. ");
+			}
 		}
-
-
-
 		return result.toString();
 	}
 
+	/*
+	 * Formats a single line of one of the injury and fatality rankings. 
+	 */
+	private static String formatIncidents (String zip, int injured, int killed, String who) {
+		return String.format("    %5s  %5d (%3d killed ) %s hurt\n", zip,
+				injured + killed, killed, who );
+	}
+
 
 	/**
 	 * Computes percentage of total collisions in this CollisionList object that involved one
@@ -359,140 +924,223 @@ public class CollisionList {
 	 * @return a string containing the results of the computation 
 	 */
 	public String getVehicleTypeStats ( ) {
-		String result = new String();
-
-		int taxi = 0;
-		int bus = 0;
-		int bicycle = 0;
-		int fireTruck = 0;
-		int ambulance = 0;
+		return getReport(ReportType.VEHICLE_TYPE_STATS, 0);
+	}
 
-		int totalNumOfCollisions = 0;
+	/**
+	 * Computes number and percentage of total collisions in this CollisionList object that 
+	 * involved each of the vehicle types present in the data. 
+	 * @return a string formatted as 
+	 *     vehicleType  numOfCollisions  percentage 
+	 *  one per line, ordered from the most to the least frequent vehicle type 
+	 */
+	public String getVehicleTypeFrequencies ( ) {
+		return getReport(ReportType.VEHICLE_TYPE_FREQUENCIES, 0);
+	}
 
-		for (ZipCodeList l : list.values() ) {
-			totalNumOfCollisions += l.getTotalNumOfCollisions(); 
-			for ( Collision c : l ) { 
-				if (c.getVehicleCode1().equalsIgnoreCase("taxi") || 
-						c.getVehicleCode2().equalsIgnoreCase("taxi")) taxi++;
-				if (c.getVehicleCode1().equalsIgnoreCase("bus") ||
-						c.getVehicleCode2().equalsIgnoreCase("bus")) bus++;
-				if (c.getVehicleCode1().equalsIgnoreCase("bicycle") ||
-						c.getVehicleCode2().equalsIgnoreCase("bicycle")) bicycle++;
-				if (c.getVehicleCode1().equalsIgnoreCase("fire truck") ||
-						c.getVehicleCode2().equalsIgnoreCase("fire truck")) fireTruck++;
-				if (c.getVehicleCode1().equalsIgnoreCase("ambulance") ||
-						c.getVehicleCode2().equalsIgnoreCase("ambulance")) ambulance++;
-			}
-		}
+	/*
+	 * Formats the results of the vehicle type statistics. 
+	 */
+	private static String formatVehicleTypeStats ( VehicleTypeCounts vehicleCount, int totalNumOfCollisions ) {
+		String result = new String();
 
 		//create a string object with results
-		result += String.format("    %-11s %5.2f%%\n", "taxi", (float)(taxi)/totalNumOfCollisions*100);
-		result += String.format("    %-11s %5.2f%%\n", "bus", (float)(bus)/totalNumOfCollisions*100);
-		result += String.format("    %-11s %5.2f%%\n", "bicycle", (float)(bicycle)/totalNumOfCollisions*100);
-		result += String.format("    %-11s %5.2f%%\n", "fire truck", (float)(fireTruck)/totalNumOfCollisions*100);
-		result += String.format("    %-11s %5.2f%%\n", "ambulance", (float)(ambulance)/totalNumOfCollisions*100);
+		for (int i = 0; i < VEHICLE_TYPES.length; i++) {
+			int count = vehicleCount.get(VehicleTypeDictionary.lookup(VEHICLE_TYPES[i]));
+			result += String.format("    %-11s %5.2f%%\n", VEHICLE_TYPES[i], 
+					(float)(count)/totalNumOfCollisions*100);
+		}
 
 		return result;
 	}
 
+	/*
+	 * Formats the frequency table of all vehicle types, skipping the unspecified type 
+	 * and the types that do not occur in this CollisionList object. 
+	 */
+	private static String formatVehicleTypeFrequencies ( final VehicleTypeCounts vehicleCount, 
+			int totalNumOfCollisions ) {
+		ArrayList<Integer> codes = new ArrayList<Integer>();
+		for (int code = 0; code < vehicleCount.size(); code++) {
+			if (code != VehicleTypeDictionary.UNSPECIFIED && vehicleCount.get(code) > 0) 
+				codes.add(code);
+		}
+		Collections.sort(codes, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer arg0, Integer arg1) {
+				int diff = vehicleCount.get(arg1) - vehicleCount.get(arg0);
+				if (diff != 0) 
+					return diff;
+				return VehicleTypeDictionary.nameOf(arg0).compareTo(VehicleTypeDictionary.nameOf(arg1));
+			}
+		});
+
+		StringBuffer result = new StringBuffer();
+		for (int code : codes) {
+			result.append(String.format("    %-35s %8d %6.2f%%\n", VehicleTypeDictionary.nameOf(code), 
+					vehicleCount.get(code), (float)(vehicleCount.get(code))/totalNumOfCollisions*100));
+		}
+		return result.toString();
+	}
+
 	/**
 	 * Computes percentage of total collisions in this CollisionList object that occured within 
 	 * a particular hour. The collisions are placed into bins of 1 hour intervals.  
 	 * @return a string containing the results of the computation 
 	 */
 	public String getHourlyStats ( ) { 
-		StringBuffer result = new StringBuffer() ;
-
-		//counter for each hour
-		int [] hourlyCount = new int [24]; 
+		return getReport(ReportType.HOURLY_STATS, 0);
+	}
 
-		String hour = "", time = ""; 
-		StringBuffer bar; 
+	/**
+	 * Computes percentage of total collisions in this CollisionList object that occured within 
+	 * a particular time of day. The collisions are placed into bins of the given length, 
+	 * for example 60 (the same as getHourlyStats()), 15 or 1 minutes. The bins are summed 
+	 * from the per-minute counts kept by every ZipCodeList, so no collision is visited. 
+	 * @param binMinutes the length of a bin in minutes, has to divide the number of minutes 
+	 * in a day 
+	 * @return a string containing the results of the computation 
+	 * @throws IllegalArgumentException if binMinutes does not divide the number of minutes in a day 
+	 */
+	public String getTimeOfDayStats ( int binMinutes ) throws IllegalArgumentException {
+		long start = startQuery();
+		TimeHistogram histogram = new TimeHistogram(binMinutes);
 		int totalNumOfCollisions = 0; 
 
-		for (ZipCodeList l : list.values() ) {
+		for (ZipCodeList l : zipCodeLists() ) {
 			totalNumOfCollisions += l.getTotalNumOfCollisions(); 
-			for ( Collision c : l ) { 
-				try { 
-					//extract the hour from the time entry 
-					time = c.getTime();
-					hour = time.substring(0,time.indexOf(':')).trim();
-					//increment counter for that hour
-					hourlyCount[Integer.parseInt(hour)]++;
-				} catch (IndexOutOfBoundsException e) {
-					//ignore incorrectly formed times 
-				} catch (NumberFormatException e ) {
-					//ignore incorrectly formed times 
-				}
-			}
-		}
-
-		for (int i = 0; i < 24; i++ ) {
-			//determine number of "bars" to be printed for visual representation of 
-			//the histogram 
-			int numOfBars = (int)(((double)hourlyCount[i]/totalNumOfCollisions) * 240);
-			bar = new StringBuffer(numOfBars);
-			for (int j = 0; j < numOfBars; j++)
-				bar.append("|");
-			result.append(String.format("%3d h  %5.1f%% %s%n", 
-					i, 100.0*hourlyCount[i]/totalNumOfCollisions, bar.toString() ));
+			histogram.addAll(l.getCollisionsByMinute());
 		}
 
-		return result.toString();
+		String result = histogram.format(totalNumOfCollisions);
+		endQuery("time of day stats", start);
+		return result;
 	}
-	/**
-	 * This method is used to check if a ziplist inside the given priorityqueue
-	 * already contains the same number of collisions to resolve ties.
-	 * @param queue the priority queue to check
-	 * @param numCollisions the number of collisions to check for
-	 * @return true if there is another ziplist with the same number of collisions
-	 * false otherwise
+
+	/*
+	 * The results of the reports computed over a part of the zip codes: the zip codes 
+	 * selected by every ranking and the counters of the statistics. 
 	 */
-	private static boolean containsNumCollisions(PriorityQueue<ZipCodeList> queue, int numCollisions){
-		//this loop should still be cheap...there won't be too many ties and as a result there
-		//should only ever be around < 10 objects in the queue.
-		for(ZipCodeList c : queue){
-			if( c.getTotalNumOfCollisions() == numCollisions){
-				return true;
+	private static class PartialReports {
+		private final Set<ReportType> reports;
+		private final EnumMap<ReportType, TopK<ZipCodeList>> rankings;
+		private final boolean vehicleStats;
+		private final boolean hourlyStats;
+		private final VehicleTypeCounts vehicleCount = new VehicleTypeCounts();
+		private final TimeHistogram hourlyCount = new TimeHistogram(60);
+		private int totalNumOfCollisions;
+
+		PartialReports ( Set<ReportType> reports, int k ) {
+			this.reports = reports;
+			rankings = new EnumMap<ReportType, TopK<ZipCodeList>>(ReportType.class);
+			for (ReportType report : reports) {
+				if (report.isRanking()) 
+					rankings.put(report, newRanking(report, k));
 			}
+			vehicleStats = reports.contains(ReportType.VEHICLE_TYPE_STATS) 
+					|| reports.contains(ReportType.VEHICLE_TYPE_FREQUENCIES);
+			hourlyStats = reports.contains(ReportType.HOURLY_STATS);
 		}
-		return false;
-	}
-	
-	/**
-	 * This method is used to check if a zipcodelist inside a given priorityqueue
-	 * is a tie for the given one.
-	 * @param queue the priority queue to search through
-	 * @param numInjured the number of cyclists injured in the zipcode to check
-	 * @param numKilled the number of cyclists killed in the zipcode to check
-	 * @return true if there is another ziplist with the same number of cyclists injured and killed
-	 * false otherwise
-	 */
-	private static boolean containsNumCyclistsIncidents(PriorityQueue<ZipCodeList> queue, int numInjured, int numKilled){
-		for(ZipCodeList c : queue){
-			if( c.getTotalNumOfCyclistsInjured() == numInjured && c.getTotalNumOfCyclistsKilled() == numKilled){
-				return true;
-			}
+
+		/*
+		 * Updates the rankings and counters with one zip code. 
+		 */
+		void add ( ZipCodeList l ) {
+			rank(l);
+			count(l.getTotalNumOfCollisions(), vehicleStats ? l.getCollisionsByVehicleType() : null, 
+					hourlyStats ? l.getCollisionsByMinute() : null);
+		}
+
+		/*
+		 * Updates the rankings with one zip code. 
+		 */
+		void rank ( ZipCodeList l ) {
+			for (TopK<ZipCodeList> ranking : rankings.values()) 
+				ranking.offer(l);
+		}
+
+		/*
+		 * Updates the counters with the totals of some collisions. 
+		 */
+		void count ( int numOfCollisions, VehicleTypeCounts vehicleTypes, TimeHistogram minutes ) {
+			totalNumOfCollisions += numOfCollisions; 
+			if (vehicleStats) 
+				vehicleCount.addAll(vehicleTypes);
+			if (hourlyStats) 
+				hourlyCount.addAll(minutes);
+		}
+
+		/*
+		 * Adds the results of the zip codes that follow the zip codes of this object. 
+		 */
+		void merge ( PartialReports other ) {
+			for (ReportType report : rankings.keySet()) 
+				rankings.get(report).addAll(other.rankings.get(report));
+			totalNumOfCollisions += other.totalNumOfCollisions;
+			vehicleCount.addAll(other.vehicleCount);
+			hourlyCount.addAll(other.hourlyCount);
+		}
+
+		/*
+		 * Formats every report. 
+		 */
+		EnumMap<ReportType, String> format ( ) {
+			EnumMap<ReportType, String> results = new EnumMap<ReportType, String>(ReportType.class);
+			for (ReportType report : rankings.keySet()) 
+				results.put(report, formatRanking(report, rankings.get(report).getResult()));
+			if (reports.contains(ReportType.VEHICLE_TYPE_STATS)) 
+				results.put(ReportType.VEHICLE_TYPE_STATS, formatVehicleTypeStats(vehicleCount, totalNumOfCollisions));
+			if (reports.contains(ReportType.VEHICLE_TYPE_FREQUENCIES)) 
+				results.put(ReportType.VEHICLE_TYPE_FREQUENCIES, 
+						formatVehicleTypeFrequencies(vehicleCount, totalNumOfCollisions));
+			if (hourlyStats) 
+				results.put(ReportType.HOURLY_STATS, hourlyCount.format(totalNumOfCollisions));
+			return results;
 		}
-		return false;
 	}
-	
-	/**
-	 * This method is used to check a given priorityqueue for a zipcodelist that is a tie
-	 * with the given ziplist in terms of persons injured and killed
-	 * @param queue the priority queue to search through
-	 * @param numInjured the number of total people injured in this zipcode
-	 * @param numKilled the number of total people killed in this zipcode
-	 * @return true if there is another zipcodelist with the same number of people injured and killed
-	 * false otherwise
-	 */
-	private static boolean containsNumPersonIncidents(PriorityQueue<ZipCodeList> queue, int numInjured, int numKilled){
-		for(ZipCodeList c : queue){
-			if(c.getTotalNumOfPersonsInjured() == numInjured && c.getTotalNumOfPersonsKilled() == numKilled){
-				return true;
+
+	/*
+	 * Computes the reports over the zip codes zipLists[from] ... zipLists[to-1], splitting 
+	 * them in halves computed in parallel as long as there are more than threshold of them. 
+	 */
+	private static class ReportTask extends RecursiveTask<PartialReports> {
+		private static final long serialVersionUID = 1L;
+
+		private final Set<ReportType> reports;
+		private final int k;
+		private final ArrayList<ZipCodeList> zipLists;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		ReportTask ( Set<ReportType> reports, int k, ArrayList<ZipCodeList> zipLists, 
+				int from, int to, int threshold ) {
+			this.reports = reports;
+			this.k = k;
+			this.zipLists = zipLists;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected PartialReports compute ( ) {
+			if (to - from <= threshold) {
+				PartialReports result = new PartialReports(reports, k);
+				for (int i = from; i < to; i++) 
+					result.add(zipLists.get(i));
+				return result;
 			}
+			int middle = (from + to) >>> 1;
+			ReportTask first = new ReportTask(reports, k, zipLists, from, middle, threshold);
+			ReportTask second = new ReportTask(reports, k, zipLists, middle, to, threshold);
+			first.fork();
+			PartialReports secondResult = second.compute();
+			PartialReports result = first.join();
+			//the zip codes of the first half precede the ones of the second half
+			result.merge(secondResult);
+			return result;
 		}
-		return false;
 	}
 }
 
@@ -616,4 +1264,44 @@ class CompareByNumOfCyclistsIncidentsAscending implements Comparator <ZipCodeLis
 		else return ( -arg1.getTotalNumOfCyclistsKilled() + arg0.getTotalNumOfCyclistsKilled() );
 	}
 
-}
\ No newline at end of file
+}
+
+/*
+ * Comparator class for comparing two @see ZipCodeList objects based on the
+ * number of injured pedestrians. The resulting order is ascending. Ties are resolved
+ * based on the number of killed pedestrians. 
+ *
+ */
+class CompareByNumOfPedestriansIncidentsAscending implements Comparator <ZipCodeList> {
+
+	@Override
+	public int compare(ZipCodeList arg0, ZipCodeList arg1) {
+		int diff = - ( arg1.getTotalNumOfPedestriansInjured() + arg1.getTotalNumOfPedestriansKilled()) 
+				+ ( arg0.getTotalNumOfPedestriansInjured() + arg0.getTotalNumOfPedestriansKilled()) ; 
+
+		if (diff != 0 ) 
+			return diff;
+		else return ( -arg1.getTotalNumOfPedestriansKilled() + arg0.getTotalNumOfPedestriansKilled() );
+	}
+
+}
+
+/*
+ * Comparator class for comparing two @see ZipCodeList objects based on the
+ * number of injured motorists. The resulting order is ascending. Ties are resolved
+ * based on the number of killed motorists. 
+ *
+ */
+class CompareByNumOfMotoristsIncidentsAscending implements Comparator <ZipCodeList> {
+
+	@Override
+	public int compare(ZipCodeList arg0, ZipCodeList arg1) {
+		int diff = - ( arg1.getTotalNumOfMotoristsInjured() + arg1.getTotalNumOfMotoristsKilled()) 
+				+ ( arg0.getTotalNumOfMotoristsInjured() + arg0.getTotalNumOfMotoristsKilled()) ; 
+
+		if (diff != 0 ) 
+			return diff;
+		else return ( -arg1.getTotalNumOfMotoristsKilled() + arg0.getTotalNumOfMotoristsKilled() );
+	}
+
+}
@@ -0,0 +1,247 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * CollisionMetrics counts what happens while collision data files are loaded and
+ * queried: the lines and bytes read, the rows added and the rows rejected for every
+ * reason (see RecordStatus), and the durations of the phases of loading (see
+ * IngestPhase) and of every query, kept in LatencyHistogram objects.
+ * The readers and the CollisionList object record into the metrics given to
+ * CollisionList.setMetrics() or MultiFileCollisionReader.setMetrics(); without
+ * metrics nothing is counted or timed.
+ * The counters are LongAdder objects, so the threads loading a file in parallel
+ * rarely wait for each other. The metrics can be watched through JMX (see
+ * register()) or dumped as text at a fixed rate (see dumpEvery()).
+ * @author Aaron Walker
+ *
+ */
+public class CollisionMetrics implements CollisionMetricsMXBean {
+
+	/** Name under which register() makes the metrics available through JMX. */
+	public static final String OBJECT_NAME = "CollisionInfo:type=CollisionMetrics";
+
+	private static final String QUERY_PREFIX = "query ";
+
+	private final long startNanos = System.nanoTime();
+	private final LongAdder linesRead = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder[] rows = new LongAdder[RecordStatus.values().length];
+	private final LatencyHistogram[] phases = new LatencyHistogram[IngestPhase.values().length];
+	//created when a query is first timed
+	private final ConcurrentHashMap<String, LatencyHistogram> queries =
+			new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * Creates CollisionMetrics with all counts 0. The rate of rows added is measured
+	 * from this moment.
+	 */
+	public CollisionMetrics() {
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = new LongAdder();
+		for (int i = 0; i < phases.length; i++)
+			phases[i] = new LatencyHistogram();
+	}
+
+	/*
+	 * Counts a line split into its entries in the given time, and rejects it if it is
+	 * not complete.
+	 */
+	void lineSplit(long nanos, boolean complete) {
+		linesRead.increment();
+		phases[IngestPhase.SPLIT.ordinal()].record(nanos);
+		if (!complete)
+			rows[RecordStatus.INCOMPLETE_LINE.ordinal()].increment();
+	}
+
+	/*
+	 * Counts the given number of bytes read.
+	 */
+	void bytesRead(long count) {
+		bytesRead.add(count);
+	}
+
+	/*
+	 * Counts a line with the given outcome: VALID for a line turned into a Collision
+	 * object, otherwise the reason it was rejected.
+	 */
+	void count(RecordStatus status) {
+		rows[status.ordinal()].increment();
+	}
+
+	/*
+	 * Records the duration of a phase of loading.
+	 */
+	void record(IngestPhase phase, long nanos) {
+		phases[phase.ordinal()].record(nanos);
+	}
+
+	/*
+	 * Records the duration of a query.
+	 */
+	void recordQuery(String query, long nanos) {
+		LatencyHistogram histogram = queries.get(query);
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = queries.putIfAbsent(query, created);
+			if (histogram == null)
+				histogram = created;
+		}
+		histogram.record(nanos);
+	}
+
+	@Override
+	public long getLinesRead() {
+		return linesRead.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getRowsAdded() {
+		//duplicates are rejected after they were turned into Collision objects
+		return rows[RecordStatus.VALID.ordinal()].sum() - rows[RecordStatus.DUPLICATE.ordinal()].sum();
+	}
+
+	@Override
+	public double getRowsPerSecond() {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return seconds > 0 ? getRowsAdded() / seconds : 0;
+	}
+
+	@Override
+	public Map<String, Long> getRejectedRows() {
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		for (RecordStatus status : RecordStatus.values()) {
+			if (status != RecordStatus.VALID)
+				result.put(status.getDescription(), rows[status.ordinal()].sum());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getLatencyCounts() {
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies().entrySet())
+			result.put(entry.getKey(), entry.getValue().getCount());
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getMeanLatencyNanos() {
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies().entrySet())
+			result.put(entry.getKey(), entry.getValue().getMeanNanos());
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getP99LatencyNanos() {
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies().entrySet())
+			result.put(entry.getKey(), entry.getValue().getPercentileNanos(99));
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getMaxLatencyNanos() {
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies().entrySet())
+			result.put(entry.getKey(), entry.getValue().getMaxNanos());
+		return result;
+	}
+
+	/**
+	 * Formats all metrics as text: the totals, the rejected rows by reason and a line
+	 * for every phase and query with its count and its mean, median, 99th percentile
+	 * and maximum duration in nanoseconds.
+	 * @see CollisionMetricsMXBean#getSummary()
+	 */
+	@Override
+	public String getSummary() {
+		StringBuffer result = new StringBuffer();
+		result.append(String.format("Lines read: %,d (%,d bytes), rows added: %,d (%,.0f rows/s)%n",
+				getLinesRead(), getBytesRead(), getRowsAdded(), getRowsPerSecond()));
+		result.append("Rejected rows:\n");
+		for (Map.Entry<String, Long> entry : getRejectedRows().entrySet())
+			result.append(String.format("    %-32s %,12d%n", entry.getKey(), entry.getValue()));
+		result.append(String.format("Latencies (ns):                  %12s %10s %10s %10s %12s%n",
+				"count", "mean", "median", "99th", "max"));
+		for (Map.Entry<String, LatencyHistogram> entry : latencies().entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			if (histogram.getCount() == 0)
+				continue;
+			result.append(String.format("    %-32s %,12d %,10d %,10d %,10d %,12d%n", entry.getKey(),
+					histogram.getCount(), histogram.getMeanNanos(), histogram.getPercentileNanos(50),
+					histogram.getPercentileNanos(99), histogram.getMaxNanos()));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Makes these metrics available through the platform MBean server under the name
+	 * OBJECT_NAME.
+	 * @throws JMException if the metrics cannot be registered, for example because
+	 * other metrics are registered under the same name
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * Prints the summary of these metrics to the given stream at a fixed rate, from a
+	 * daemon thread, until the returned executor is shut down.
+	 * @param out the stream the summary is printed to
+	 * @param seconds the number of seconds between two summaries
+	 * @return the executor printing the summaries
+	 * @throws IllegalArgumentException if seconds is smaller than 1
+	 */
+	public ScheduledExecutorService dumpEvery(final PrintStream out, int seconds)
+			throws IllegalArgumentException {
+		if (seconds < 1)
+			throw new IllegalArgumentException("Error: interval has to be positive. ");
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "metrics-dump");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				out.print(getSummary());
+				out.println();
+			}
+		}, seconds, seconds, TimeUnit.SECONDS);
+		return executor;
+	}
+
+	/*
+	 * Returns the histograms of the phases, in their order, followed by the ones of
+	 * the queries, in alphabetical order.
+	 */
+	private Map<String, LatencyHistogram> latencies() {
+		LinkedHashMap<String, LatencyHistogram> result = new LinkedHashMap<String, LatencyHistogram>();
+		for (IngestPhase phase : IngestPhase.values())
+			result.put(phase.getName(), phases[phase.ordinal()]);
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(queries).entrySet())
+			result.put(QUERY_PREFIX + entry.getKey(), entry.getValue());
+		return result;
+	}
+}
@@ -0,0 +1,74 @@
+import java.util.Map;
+
+/**
+ * Management interface of CollisionMetrics, through which the metrics of loading 
+ * and querying the collision data can be watched with JMX clients such as JConsole. 
+ * The maps are keyed by the description of the reason a row was rejected, or by 
+ * the name of the phase or query. 
+ * @author Aaron Walker
+ *
+ */
+public interface CollisionMetricsMXBean {
+
+	/**
+	 * Returns the number of lines read from the input files. 
+	 * @return the number of lines 
+	 */
+	long getLinesRead();
+
+	/**
+	 * Returns the number of bytes read from the input files. 
+	 * @return the number of bytes 
+	 */
+	long getBytesRead();
+
+	/**
+	 * Returns the number of rows added to the list, the lines read minus the lines 
+	 * rejected. 
+	 * @return the number of rows 
+	 */
+	long getRowsAdded();
+
+	/**
+	 * Returns the number of rows added per second since the metrics were created. 
+	 * @return the rate 
+	 */
+	double getRowsPerSecond();
+
+	/**
+	 * Returns the number of rows rejected for every reason. 
+	 * @return the counts keyed by the reason 
+	 */
+	Map<String, Long> getRejectedRows();
+
+	/**
+	 * Returns the number of durations recorded for every phase and query. 
+	 * @return the counts keyed by the phase or query 
+	 */
+	Map<String, Long> getLatencyCounts();
+
+	/**
+	 * Returns the mean duration of every phase and query. 
+	 * @return the means in nanoseconds keyed by the phase or query 
+	 */
+	Map<String, Long> getMeanLatencyNanos();
+
+	/**
+	 * Returns an upper bound of the 99th percentile of the durations of every phase 
+	 * and query. 
+	 * @return the percentiles in nanoseconds keyed by the phase or query 
+	 */
+	Map<String, Long> getP99LatencyNanos();
+
+	/**
+	 * Returns the longest duration of every phase and query. 
+	 * @return the maxima in nanoseconds keyed by the phase or query 
+	 */
+	Map<String, Long> getMaxLatencyNanos();
+
+	/**
+	 * Returns all metrics formatted as text, the same as the periodic dump. 
+	 * @return the formatted metrics 
+	 */
+	String getSummary();
+}
@@ -0,0 +1,261 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+/**
+ * CollisionSnapshot saves the contents of a CollisionList object to a compact binary
+ * file and loads them back, so that data that has not changed does not have to be
+ * parsed again. The file consists of
+ *   a header: magic number, format version, number of zip codes
+ *   the vehicle type dictionary: the names of the vehicle type codes used in the file
+ *   one block per zip code: the zip code, the number of rows and the columns of its
+ *   CollisionStore, each column stored as an array of primitive values, followed by
+ *   the rows and texts of the unique keys that are not kept as numbers
+ * All numbers are stored in big-endian order. A snapshot is loaded by memory-mapping
+ * the file and copying the columns directly into the arrays of the CollisionStore objects.
+ * @author Aaron Walker
+ *
+ */
+public class CollisionSnapshot {
+
+	/** The first four bytes of every snapshot file ("CLSN"). */
+	static final int MAGIC = 0x434C534E;
+	/** The version of the format written by this class. */
+	static final int VERSION = 3;
+
+	private static final byte NARROW = 1;
+	private static final byte WIDE = 4;
+
+	private CollisionSnapshot() {
+	}
+
+	/**
+	 * Saves the given CollisionList object to a snapshot file. The file is first
+	 * written under a temporary name and then renamed, so an incomplete snapshot
+	 * never replaces an existing one.
+	 * @param list the CollisionList object to be saved
+	 * @param file the snapshot file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(CollisionList list, File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+		try {
+			write(list, out);
+		}
+		finally {
+			out.close();
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException ex) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void write(CollisionList list, DataOutputStream out) throws IOException {
+		int numOfZips = 0;
+		for (ZipCodeList zipList : list.zipCodeLists())
+			numOfZips++;
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(numOfZips);
+
+		int numOfVehicleTypes = VehicleTypeDictionary.size();
+		out.writeInt(numOfVehicleTypes);
+		for (int code = 0; code < numOfVehicleTypes; code++)
+			writeString(out, VehicleTypeDictionary.nameOf(code));
+
+
+		for (ZipCodeList zipList : list.zipCodeLists()) {
+			RecordStore records = zipList.records();
+			int size = records.size();
+			out.writeInt(zipList.getZipCode());
+			out.writeInt(size);
+			for (int row = 0; row < size; row++)
+				out.writeInt(records.getEpochDay(row));
+			for (int row = 0; row < size; row++)
+				out.writeShort(records.getMinuteOfDay(row));
+			for (int row = 0; row < size; row++)
+				out.writeByte(records.getBorough(row).ordinal());
+			for (int row = 0; row < size; row++)
+				out.writeFloat(records.getLatitude(row));
+			for (int row = 0; row < size; row++)
+				out.writeFloat(records.getLongitude(row));
+			for (int row = 0; row < size; row++)
+				out.writeShort(records.getVehicleType1(row));
+			for (int row = 0; row < size; row++)
+				out.writeShort(records.getVehicleType2(row));
+			for (int column = 0; column < CollisionStore.NUM_OF_COUNTS; column++) {
+				boolean wide = records.isWide(column);
+				out.writeByte(wide ? WIDE : NARROW);
+				for (int row = 0; row < size; row++) {
+					if (wide)
+						out.writeInt(records.getCount(column, row));
+					else
+						out.writeByte(records.getCount(column, row));
+				}
+			}
+			for (int row = 0; row < size; row++)
+				out.writeLong(records.getNumericUniqueKey(row));
+			ArrayList<Integer> textRows = new ArrayList<Integer>();
+			for (int row = 0; row < size; row++) {
+				if (records.getUniqueKeyText(row) != null)
+					textRows.add(row);
+			}
+			out.writeInt(textRows.size());
+			for (int row : textRows) {
+				out.writeInt(row);
+				writeString(out, records.getUniqueKeyText(row));
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Loads a CollisionList object from a snapshot file.
+	 * @param file the snapshot file
+	 * @return the CollisionList object holding the collisions stored in the file
+	 * @throws IOException if the file cannot be read, is not a snapshot file or was
+	 * written in an unsupported version of the format
+	 */
+	public static CollisionList load(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Snapshot " + file + " is too large to be mapped");
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(in);
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Snapshot " + file + " is truncated", ex);
+		}
+		catch (IndexOutOfBoundsException ex) {
+			throw new IOException("Snapshot " + file + " is corrupted", ex);
+		}
+		catch (NegativeArraySizeException ex) {
+			throw new IOException("Snapshot " + file + " is corrupted", ex);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IOException("Snapshot " + file + " is corrupted", ex);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	private static CollisionList read(MappedByteBuffer in) throws IOException {
+		if (in.remaining() < 8 || in.getInt() != MAGIC)
+			throw new IOException("Not a collision snapshot");
+		int version = in.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported snapshot version " + version);
+		int numOfZips = in.getInt();
+
+		//translate the vehicle type codes of the file to the codes of this run
+		short[] vehicleTypes = new short[in.getInt()];
+		for (int code = 0; code < vehicleTypes.length; code++)
+			vehicleTypes[code] = VehicleTypeDictionary.codeOf(readString(in));
+
+		CollisionList list = new CollisionList();
+		for (int z = 0; z < numOfZips; z++) {
+			int zipCode = in.getInt();
+			int size = in.getInt();
+			String zip = String.format("%05d", zipCode);
+
+			int[] epochDays = new int[size];
+			in.asIntBuffer().get(epochDays);
+			in.position(in.position() + 4 * size);
+			short[] minutes = new short[size];
+			in.asShortBuffer().get(minutes);
+			in.position(in.position() + 2 * size);
+			byte[] boroughs = new byte[size];
+			in.get(boroughs);
+			for (int row = 0; row < size; row++) {
+				if (boroughs[row] < 0 || boroughs[row] >= Borough.values().length)
+					throw new IOException("Invalid borough " + boroughs[row]);
+			}
+			float[] latitudes = readFloats(in, size);
+			float[] longitudes = readFloats(in, size);
+			short[] vehicleTypes1 = readVehicleTypes(in, size, vehicleTypes);
+			short[] vehicleTypes2 = readVehicleTypes(in, size, vehicleTypes);
+
+			byte[][] smallCounts = new byte[CollisionStore.NUM_OF_COUNTS][];
+			int[][] wideCounts = new int[CollisionStore.NUM_OF_COUNTS][];
+			for (int column = 0; column < CollisionStore.NUM_OF_COUNTS; column++) {
+				byte width = in.get();
+				if (width == WIDE) {
+					wideCounts[column] = new int[size];
+					in.asIntBuffer().get(wideCounts[column]);
+					in.position(in.position() + 4 * size);
+				}
+				else if (width == NARROW) {
+					smallCounts[column] = new byte[size];
+					in.get(smallCounts[column]);
+				}
+				else {
+					throw new IOException("Invalid column width " + width);
+				}
+			}
+			long[] uniqueKeys = new long[size];
+			in.asLongBuffer().get(uniqueKeys);
+			in.position(in.position() + 8 * size);
+			String[] uniqueKeyTexts = null;
+			int numOfTexts = in.getInt();
+			if (numOfTexts > 0)
+				uniqueKeyTexts = new String[size];
+			for (int i = 0; i < numOfTexts; i++) {
+				int row = in.getInt();
+				uniqueKeyTexts[row] = readString(in);
+			}
+
+			list.addZipCodeList(new ZipCodeList(zipCode, new CollisionStore(zip, size, epochDays, minutes,
+					boroughs, latitudes, longitudes, vehicleTypes1, vehicleTypes2, uniqueKeys, uniqueKeyTexts,
+					smallCounts, wideCounts)));
+		}
+		return list;
+	}
+
+	private static float[] readFloats(MappedByteBuffer in, int size) {
+		float[] column = new float[size];
+		in.asFloatBuffer().get(column);
+		in.position(in.position() + 4 * size);
+		return column;
+	}
+
+	private static short[] readVehicleTypes(MappedByteBuffer in, int size, short[] vehicleTypes) {
+		short[] column = new short[size];
+		in.asShortBuffer().get(column);
+		in.position(in.position() + 2 * size);
+		for (int row = 0; row < size; row++)
+			column[row] = vehicleTypes[column[row]];
+		return column;
+	}
+
+	private static String readString(MappedByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
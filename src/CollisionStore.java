@@ -0,0 +1,291 @@
+import java.util.Arrays;
+
+/**
+ * CollisionStore keeps the records of collisions in a columnar form: each field
+ * of a collision is stored in its own growable array, indexed by the row number
+ * of the collision. The numeric fields are kept in primitive arrays (bytes, widened
+ * to ints only when a value does not fit in a byte), the dates are kept as epoch
+ * days, the times are kept as minutes since midnight, the boroughs are kept as the
+ * ordinals of their Borough, the locations are kept as float latitudes and longitudes,
+ * the vehicle types are kept as their VehicleTypeDictionary codes and the unique keys
+ * are kept as longs. The few unique keys that are not plain numbers are kept as text
+ * in a column that is created when the first of them is stored. Scans that need
+ * only some of the fields touch only the arrays of those fields.
+ * Collision objects are not stored, they are created on request from a row.
+ * The columns are reached through the references of the arrays, which the garbage
+ * collector traces, see OffHeapCollisionStore for a store outside of the heap.
+ * @author Aaron Walker
+ *
+ */
+class CollisionStore extends RecordStore {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int size;
+
+	private int[] epochDays;
+	private short[] minutes;
+	private byte[] boroughs;
+	private float[] latitudes;
+	private float[] longitudes;
+	private short[] vehicleTypes1;
+	private short[] vehicleTypes2;
+	private long[] uniqueKeys;
+	//null until a unique key that is not a plain number is stored
+	private String[] uniqueKeyTexts;
+	private final CountColumn[] counts;
+
+	/**
+	 * Creates an empty CollisionStore for collisions from the given zip code.
+	 * @param zip the zip code shared by all collisions in this store
+	 */
+	CollisionStore(String zip) {
+		super(zip);
+		epochDays = new int[INITIAL_CAPACITY];
+		minutes = new short[INITIAL_CAPACITY];
+		boroughs = new byte[INITIAL_CAPACITY];
+		latitudes = new float[INITIAL_CAPACITY];
+		longitudes = new float[INITIAL_CAPACITY];
+		vehicleTypes1 = new short[INITIAL_CAPACITY];
+		vehicleTypes2 = new short[INITIAL_CAPACITY];
+		uniqueKeys = new long[INITIAL_CAPACITY];
+		counts = new CountColumn[NUM_OF_COUNTS];
+		for (int i = 0; i < NUM_OF_COUNTS; i++)
+			counts[i] = new CountColumn(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a CollisionStore from complete columns, for example the ones read from
+	 * a snapshot file. The arrays are used directly, they are not copied. For each of 
+	 * the count columns exactly one of smallCounts[i] and wideCounts[i] is not null. 
+	 * The boroughs are Borough ordinals, uniqueKeyTexts is null if all unique keys are
+	 * kept as numbers. 
+	 * @param zip the zip code shared by all collisions in this store
+	 * @param size the number of rows in the columns
+	 */
+	CollisionStore(String zip, int size, int[] epochDays, short[] minutes, byte[] boroughs,
+			float[] latitudes, float[] longitudes, short[] vehicleTypes1, short[] vehicleTypes2, 
+			long[] uniqueKeys, String[] uniqueKeyTexts, byte[][] smallCounts, int[][] wideCounts) {
+		super(zip);
+		this.size = size;
+		this.epochDays = epochDays;
+		this.minutes = minutes;
+		this.boroughs = boroughs;
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+		this.vehicleTypes1 = vehicleTypes1;
+		this.vehicleTypes2 = vehicleTypes2;
+		this.uniqueKeys = uniqueKeys;
+		this.uniqueKeyTexts = uniqueKeyTexts;
+		counts = new CountColumn[NUM_OF_COUNTS];
+		for (int i = 0; i < NUM_OF_COUNTS; i++)
+			counts[i] = new CountColumn(smallCounts[i], wideCounts[i]);
+	}
+
+	@Override
+	void add(Collision col) {
+		if (size == epochDays.length)
+			grow();
+		epochDays[size] = col.getEpochDay();
+		minutes[size] = col.getMinuteOfDay();
+		boroughs[size] = (byte) col.getBoroughValue().ordinal();
+		latitudes[size] = col.getLatitude();
+		longitudes[size] = col.getLongitude();
+		vehicleTypes1[size] = col.getVehicleType1();
+		vehicleTypes2[size] = col.getVehicleType2();
+		uniqueKeys[size] = col.getNumericUniqueKey();
+		if (col.getUniqueKeyText() != null) {
+			if (uniqueKeyTexts == null)
+				uniqueKeyTexts = new String[epochDays.length];
+			uniqueKeyTexts[size] = col.getUniqueKeyText();
+		}
+
+		counts[PERSONS_INJURED].set(size, col.getPersonsInjured());
+		counts[PERSONS_KILLED].set(size, col.getPersonsKilled());
+		counts[PEDESTRIANS_INJURED].set(size, col.getPedestriansInjured());
+		counts[PEDESTRIANS_KILLED].set(size, col.getPedestriansKilled());
+		counts[CYCLISTS_INJURED].set(size, col.getCyclistsInjured());
+		counts[CYCLISTS_KILLED].set(size, col.getCyclistsKilled());
+		counts[MOTORISTS_INJURED].set(size, col.getMotoristsInjured());
+		counts[MOTORISTS_KILLED].set(size, col.getMotoristsKilled());
+		size++;
+	}
+
+	/**
+	 * Appends all collisions of another store to this store, column by column if the
+	 * other store is a CollisionStore as well.
+	 * @param other the store holding the collisions to be appended, it is not modified
+	 * @throws IllegalArgumentException if the other store holds collisions from a
+	 * different zip code
+	 */
+	@Override
+	void addAll(RecordStore other) throws IllegalArgumentException {
+		if (!(other instanceof CollisionStore)) {
+			super.addAll(other);
+			return;
+		}
+		addAll((CollisionStore) other);
+	}
+
+	private void addAll(CollisionStore other) throws IllegalArgumentException {
+		if (!zip.equals(other.zip))
+			throw new IllegalArgumentException("Error: zip codes are not matching. ");
+		int otherSize = other.size;
+		if (size + otherSize > epochDays.length)
+			grow(size + otherSize);
+		System.arraycopy(other.epochDays, 0, epochDays, size, otherSize);
+		System.arraycopy(other.minutes, 0, minutes, size, otherSize);
+		System.arraycopy(other.boroughs, 0, boroughs, size, otherSize);
+		System.arraycopy(other.latitudes, 0, latitudes, size, otherSize);
+		System.arraycopy(other.longitudes, 0, longitudes, size, otherSize);
+		System.arraycopy(other.vehicleTypes1, 0, vehicleTypes1, size, otherSize);
+		System.arraycopy(other.vehicleTypes2, 0, vehicleTypes2, size, otherSize);
+		System.arraycopy(other.uniqueKeys, 0, uniqueKeys, size, otherSize);
+		if (other.uniqueKeyTexts != null) {
+			if (uniqueKeyTexts == null)
+				uniqueKeyTexts = new String[epochDays.length];
+			System.arraycopy(other.uniqueKeyTexts, 0, uniqueKeyTexts, size, otherSize);
+		}
+		for (int i = 0; i < NUM_OF_COUNTS; i++) {
+			for (int row = 0; row < otherSize; row++)
+				counts[i].set(size + row, other.counts[i].get(row));
+		}
+		size += otherSize;
+	}
+
+	private void grow() {
+		grow(epochDays.length + (epochDays.length >> 1));
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(INITIAL_CAPACITY, minCapacity);
+		epochDays = Arrays.copyOf(epochDays, capacity);
+		minutes = Arrays.copyOf(minutes, capacity);
+		boroughs = Arrays.copyOf(boroughs, capacity);
+		latitudes = Arrays.copyOf(latitudes, capacity);
+		longitudes = Arrays.copyOf(longitudes, capacity);
+		vehicleTypes1 = Arrays.copyOf(vehicleTypes1, capacity);
+		vehicleTypes2 = Arrays.copyOf(vehicleTypes2, capacity);
+		uniqueKeys = Arrays.copyOf(uniqueKeys, capacity);
+		if (uniqueKeyTexts != null)
+			uniqueKeyTexts = Arrays.copyOf(uniqueKeyTexts, capacity);
+		for (CountColumn column : counts)
+			column.grow(capacity);
+	}
+
+	@Override
+	int size() {
+		return size;
+	}
+
+	@Override
+	int getEpochDay(int row) {
+		checkRow(row);
+		return epochDays[row];
+	}
+
+	@Override
+	Borough getBorough(int row) {
+		checkRow(row);
+		return Borough.ofOrdinal(boroughs[row]);
+	}
+
+	@Override
+	float getLatitude(int row) {
+		checkRow(row);
+		return latitudes[row];
+	}
+
+	@Override
+	float getLongitude(int row) {
+		checkRow(row);
+		return longitudes[row];
+	}
+
+	@Override
+	long getNumericUniqueKey(int row) {
+		checkRow(row);
+		return uniqueKeys[row];
+	}
+
+	@Override
+	String getUniqueKeyText(int row) {
+		checkRow(row);
+		return uniqueKeyTexts == null ? null : uniqueKeyTexts[row];
+	}
+
+	@Override
+	short getMinuteOfDay(int row) {
+		checkRow(row);
+		return minutes[row];
+	}
+
+	@Override
+	short getVehicleType1(int row) {
+		checkRow(row);
+		return vehicleTypes1[row];
+	}
+
+	@Override
+	short getVehicleType2(int row) {
+		checkRow(row);
+		return vehicleTypes2[row];
+	}
+
+	@Override
+	int getCount(int column, int row) {
+		checkRow(row);
+		return counts[column].get(row);
+	}
+
+	@Override
+	boolean isWide(int column) {
+		return counts[column].wide != null;
+	}
+
+	/*
+	 * Growable column of small integers. The values are stored in a byte array
+	 * until the first value that does not fit in a byte is stored, at which point
+	 * the column is widened to an int array.
+	 */
+	private static class CountColumn {
+
+		private byte[] small;
+		private int[] wide;
+
+		CountColumn(int capacity) {
+			small = new byte[capacity];
+		}
+
+		CountColumn(byte[] small, int[] wide) {
+			this.small = small;
+			this.wide = wide;
+		}
+
+		int get(int row) {
+			return wide != null ? wide[row] : small[row];
+		}
+
+		void set(int row, int value) {
+			if (wide == null && value != (byte) value) {
+				wide = new int[small.length];
+				for (int i = 0; i < small.length; i++)
+					wide[i] = small[i];
+				small = null;
+			}
+			if (wide != null)
+				wide[row] = value;
+			else
+				small[row] = (byte) value;
+		}
+
+		void grow(int capacity) {
+			if (wide != null) {
+				wide = Arrays.copyOf(wide, capacity);
+			}
+			else {
+				small = Arrays.copyOf(small, capacity);
+			}
+		}
+	}
+}
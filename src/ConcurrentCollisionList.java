@@ -0,0 +1,293 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentCollisionList is a CollisionList that many threads can add collisions
+ * to at the same time, so that a file can be parsed in parallel into a single list.
+ * The zip codes are looked up in a table with one slot for every possible zip code,
+ * the same as in a CollisionList, but the slots are filled with compare-and-set, so
+ * adding a collision never takes a lock shared by all zip codes. Every zip code is
+ * kept in a ConcurrentZipCodeList, which splits its collisions into stripes, so
+ * threads adding collisions from the same zip code rarely wait for each other.
+ * The totals of every borough and the grid indexing the locations of the collisions
+ * are striped the same way. 
+ * Reports computed while collisions are being added may not include the collisions
+ * added at that moment. The collisions of a zip code are not kept in the order in
+ * which they were added by different threads.
+ * @author Aaron Walker
+ *
+ */
+public class ConcurrentCollisionList extends CollisionList {
+
+	private final AtomicReferenceArray<ConcurrentZipCodeList> table;
+	//zip codes present in the table, in ascending order
+	private final ConcurrentSkipListSet<Integer> zips;
+	private final int numOfStripes;
+	//boroughStats[stripe][borough.ordinal()], guarded by the lock of boroughStats[stripe]
+	private final BoroughStats[][] boroughStats;
+	//one grid per stripe, guarded by the lock of the grid
+	private final SpatialGrid[] grids;
+	//number of changes of the data, see CollisionList.getModCount()
+	private final LongAdder modifications = new LongAdder();
+
+	/**
+	 * Creates an empty ConcurrentCollisionList object with one stripe per available
+	 * processor in every zip code.
+	 */
+	public ConcurrentCollisionList() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an empty ConcurrentCollisionList object.
+	 * @param numOfStripes the number of stripes every zip code is split into
+	 * @throws IllegalArgumentException if numOfStripes is smaller than 1
+	 */
+	public ConcurrentCollisionList(int numOfStripes) throws IllegalArgumentException {
+		super(null);
+		if (numOfStripes < 1)
+			throw new IllegalArgumentException("Error: number of stripes has to be positive. ");
+		this.numOfStripes = numOfStripes;
+		table = new AtomicReferenceArray<ConcurrentZipCodeList>(ZipCodeDirectory.NUM_OF_ZIP_CODES);
+		zips = new ConcurrentSkipListSet<Integer>();
+		boroughStats = new BoroughStats[numOfStripes][];
+		for (int i = 0; i < numOfStripes; i++) {
+			boroughStats[i] = new BoroughStats[Borough.values().length];
+			for (Borough borough : Borough.values()) 
+				boroughStats[i][borough.ordinal()] = new BoroughStats(borough);
+		}
+		grids = new SpatialGrid[numOfStripes];
+		for (int i = 0; i < numOfStripes; i++)
+			grids[i] = new SpatialGrid();
+	}
+
+	/**
+	 * Adds an already created Collision object to this CollisionList object. This
+	 * method can be called by several threads at the same time.
+	 * @param col the Collision object to be added
+	 * @return true if the collision was added to this CollisionList object, false
+	 * otherwise
+	 */
+	@Override
+	public boolean add(Collision col) {
+		if (col == null) return false;
+		if (isDuplicate(col))
+			return false; //already added
+		CollisionMetrics metrics = getMetrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+
+		int zipCode = col.getZipCode();
+		ConcurrentZipCodeList zipList = table.get(zipCode);
+		if (zipList == null) {
+			ConcurrentZipCodeList created = new ConcurrentZipCodeList(zipCode, numOfStripes);
+			if (table.compareAndSet(zipCode, null, created)) {
+				zipList = created;
+				zips.add(zipCode);
+			}
+			else {
+				//another thread added the zip code first
+				zipList = table.get(zipCode);
+			}
+		}
+		zipList.add(col);
+
+		int stripeIndex = (int) (Thread.currentThread().getId() % numOfStripes);
+		BoroughStats[] stripe = boroughStats[stripeIndex];
+		synchronized (stripe) {
+			stripe[col.getBoroughValue().ordinal()].add(col);
+		}
+		SpatialGrid grid = grids[stripeIndex];
+		synchronized (grid) {
+			grid.add(col.getLatitude(), col.getLongitude());
+		}
+		modified();
+		if (metrics != null)
+			metrics.record(IngestPhase.ADD, System.nanoTime() - start);
+		return true;
+	}
+
+	/**
+	 * Adds the collisions of another CollisionList object to this object one by one. 
+	 * This method can be called by several threads at the same time, with different 
+	 * other lists. 
+	 * @param other the CollisionList object whose collisions are added, it is not 
+	 * modified 
+	 * @throws UnsupportedOperationException if the other list is in streaming mode 
+	 */
+	@Override
+	public void merge(CollisionList other) throws UnsupportedOperationException {
+		for (ZipCodeList zipList : other.zipCodeLists()) {
+			for (Collision col : zipList)
+				add(col);
+		}
+		UniqueKeyFilter uniqueKeys = getUniqueKeyFilter();
+		UniqueKeyFilter otherKeys = other.getUniqueKeyFilter();
+		if (uniqueKeys != null && otherKeys != null)
+			uniqueKeys.addNumOfDuplicates(otherKeys.getNumOfDuplicates());
+	}
+
+	/**
+	 * Keeping the collisions off the heap is not supported, the stripes of the zip 
+	 * codes keep their collisions on the heap. 
+	 * @param offHeap false, the only supported value 
+	 * @throws UnsupportedOperationException if offHeap is true 
+	 */
+	@Override
+	public void setOffHeap(boolean offHeap) throws UnsupportedOperationException {
+		if (offHeap)
+			throw new UnsupportedOperationException("Error: a concurrent list keeps its collisions on the heap. ");
+	}
+
+	/*
+	 * Counts a change of the data without a lock shared by the adding threads.
+	 */
+	@Override
+	void modified() {
+		modifications.increment();
+	}
+
+	@Override
+	long getModCount() {
+		return modifications.sum();
+	}
+
+	/*
+	 * Creates a filter with one stripe per stripe of the zip codes.
+	 */
+	@Override
+	UniqueKeyFilter newUniqueKeyFilter() {
+		return new UniqueKeyFilter(numOfStripes);
+	}
+
+	/**
+	 * Returns the totals of the collisions reported in the given borough, summed over 
+	 * all stripes. 
+	 * @param borough the borough 
+	 * @return a new BoroughStats object holding the totals of the borough 
+	 */
+	@Override
+	public BoroughStats getBoroughStats(Borough borough) {
+		BoroughStats result = new BoroughStats(borough);
+		for (BoroughStats[] stripe : boroughStats) {
+			synchronized (stripe) {
+				result.addAll(stripe[borough.ordinal()]);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Counts the collisions within the bounds in the grids of all stripes.
+	 */
+	@Override
+	int countInBox(double minLatitude, double minLongitude, 
+			double maxLatitude, double maxLongitude) {
+		int result = 0;
+		for (SpatialGrid grid : grids) {
+			synchronized (grid) {
+				result += grid.countInBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Counts the collisions within the distance in the grids of all stripes.
+	 */
+	@Override
+	int countWithin(double latitude, double longitude, double meters) {
+		int result = 0;
+		for (SpatialGrid grid : grids) {
+			synchronized (grid) {
+				result += grid.countWithin(latitude, longitude, meters);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Selects the densest cells from the counts summed over the grids of all stripes.
+	 */
+	@Override
+	String densestCells(int k) {
+		int[] totals = new int[grids[0].getNumOfCells()];
+		for (SpatialGrid grid : grids) {
+			synchronized (grid) {
+				grid.addCountsTo(totals);
+			}
+		}
+		return grids[0].formatDensestCells(totals, k);
+	}
+
+	/*
+	 * Returns the ZipCodeList objects of the given borough in ascending order of zip 
+	 * codes. The borough of a zip code can change while collisions are added, so the 
+	 * zip codes are selected when this method is called. 
+	 */
+	@Override
+	Iterable<ZipCodeList> zipCodeLists(Borough borough) {
+		ArrayList<ZipCodeList> result = new ArrayList<ZipCodeList>();
+		for (ZipCodeList zipList : zipCodeLists()) {
+			if (zipList.getBorough() == borough)
+				result.add(zipList);
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the ZipCodeList objects of this CollisionList object in ascending order
+	 * of zip codes. Zip codes added while iterating may or may not be returned.
+	 */
+	@Override
+	Iterable<ZipCodeList> zipCodeLists() {
+		return new Iterable<ZipCodeList>() {
+			@Override
+			public Iterator<ZipCodeList> iterator() {
+				final Iterator<Integer> zipIterator = zips.iterator();
+				return new Iterator<ZipCodeList>() {
+					@Override
+					public boolean hasNext() {
+						return zipIterator.hasNext();
+					}
+
+					@Override
+					public ZipCodeList next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						return table.get(zipIterator.next());
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/*
+	 * Returns the ZipCodeList object of the given zip code, or null if this
+	 * CollisionList object has no collisions from that zip code.
+	 */
+	@Override
+	ZipCodeList getZipCodeList(int zipCode) {
+		return table.get(zipCode);
+	}
+
+	/*
+	 * Adds the collisions of a ZipCodeList object whose zip code is not yet present
+	 * in this CollisionList object.
+	 */
+	@Override
+	void addZipCodeList(ZipCodeList zipList) throws IllegalArgumentException {
+		if (table.get(zipList.getZipCode()) != null)
+			throw new IllegalArgumentException("Error: zip code " + zipList.getZip() + " already present. ");
+		for (Collision col : zipList)
+			add(col);
+	}
+}
@@ -0,0 +1,236 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentZipCodeList is a ZipCodeList that many threads can add collisions to
+ * at the same time. The collisions are kept in several stripes, each with its own
+ * CollisionStore, time of day histogram and vehicle type counts, and a thread adds
+ * to the stripe selected by its id while holding only the lock of that stripe.
+ * The totals of injuries and fatalities are kept in LongAdder objects, which are
+ * updated without any lock.
+ * The totals, histograms and counts returned while collisions are being added do
+ * not have to include the collisions that are being added at that moment. The
+ * collisions added by one thread are kept in the order in which they were added,
+ * the order of the collisions added by different threads is not preserved.
+ * @author Aaron Walker
+ *
+ */
+class ConcurrentZipCodeList extends ZipCodeList {
+
+	private final Stripe[] stripes;
+
+	private final LongAdder totalNumOfCollisions = new LongAdder();
+	private final LongAdder totalNumOfPersonsInjured = new LongAdder();
+	private final LongAdder totalNumOfPersonsKilled = new LongAdder();
+	private final LongAdder totalNumOfCyclistsInjured = new LongAdder();
+	private final LongAdder totalNumOfCyclistsKilled = new LongAdder();
+	private final LongAdder totalNumOfPedestriansInjured = new LongAdder();
+	private final LongAdder totalNumOfPedestriansKilled = new LongAdder();
+	private final LongAdder totalNumOfMotoristsInjured = new LongAdder();
+	private final LongAdder totalNumOfMotoristsKilled = new LongAdder();
+
+	/**
+	 * Creates an empty ConcurrentZipCodeList object.
+	 * @param zipCode the zip code of the collisions of this object
+	 * @param numOfStripes the number of stripes, more stripes make it less likely
+	 * that two threads adding collisions wait for each other
+	 */
+	ConcurrentZipCodeList(int zipCode, int numOfStripes) {
+		super(zipCode);
+		stripes = new Stripe[numOfStripes];
+		for (int i = 0; i < numOfStripes; i++)
+			stripes[i] = new Stripe(getZip());
+	}
+
+	/**
+	 * Adds another Collision object to this ZipCodeList object. This method can be
+	 * called by several threads at the same time.
+	 * @param col a Collision object to be added to this ZipCodeList object
+	 * @throws IllegalArgumentException when the zip code of the new Collision
+	 * object col is not the same as the zip code for this ZipCodeList object
+	 */
+	@Override
+	public ZipCodeList add(Collision col) throws IllegalArgumentException {
+		if (col == null) return this;
+		if (col.getZipCode() != getZipCode())
+			throw new IllegalArgumentException("Error: zip codes are not matching. ");
+
+		Stripe stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+		synchronized (stripe) {
+			stripe.records.add(col);
+			stripe.collisionsByMinute.add(col.getMinuteOfDay());
+			stripe.collisionsByVehicleType.add(col.getVehicleType1(), col.getVehicleType2());
+			stripe.collisionsByBorough[col.getBoroughValue().ordinal()]++;
+		}
+
+		totalNumOfCollisions.increment();
+		totalNumOfPersonsInjured.add(col.getPersonsInjured());
+		totalNumOfPersonsKilled.add(col.getPersonsKilled());
+		totalNumOfCyclistsInjured.add(col.getCyclistsInjured());
+		totalNumOfCyclistsKilled.add(col.getCyclistsKilled());
+		totalNumOfPedestriansInjured.add(col.getPedestriansInjured());
+		totalNumOfPedestriansKilled.add(col.getPedestriansKilled());
+		totalNumOfMotoristsInjured.add(col.getMotoristsInjured());
+		totalNumOfMotoristsKilled.add(col.getMotoristsKilled());
+		return this;
+	}
+
+	/**
+	 * Returns an iterator over the collisions of this object, stripe by stripe.
+	 * Collisions added while iterating may or may not be returned.
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<Collision> iterator() {
+		return new Iterator<Collision>() {
+			private int stripe = 0;
+			private int row = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (stripe < stripes.length) {
+					synchronized (stripes[stripe]) {
+						if (row < stripes[stripe].records.size())
+							return true;
+					}
+					stripe++;
+					row = 0;
+				}
+				return false;
+			}
+
+			@Override
+			public Collision next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				synchronized (stripes[stripe]) {
+					return stripes[stripe].records.get(row++);
+				}
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/*
+	 * Returns a copy of the collisions of all stripes in a single CollisionStore.
+	 */
+	@Override
+	CollisionStore records() {
+		CollisionStore result = new CollisionStore(getZip());
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (int row = 0; row < stripe.records.size(); row++)
+					result.add(stripe.records.get(row));
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the sum of the time of day histograms of all stripes.
+	 */
+	@Override
+	TimeHistogram getCollisionsByMinute() {
+		TimeHistogram result = new TimeHistogram(1);
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				result.addAll(stripe.collisionsByMinute);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the sum of the vehicle type counts of all stripes.
+	 */
+	@Override
+	VehicleTypeCounts getCollisionsByVehicleType() {
+		VehicleTypeCounts result = new VehicleTypeCounts();
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				result.addAll(stripe.collisionsByVehicleType);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the sum of the borough counts of all stripes.
+	 */
+	@Override
+	int [] getCollisionsByBorough() {
+		int [] result = new int [Borough.values().length];
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (int i = 0; i < result.length; i++)
+					result[i] += stripe.collisionsByBorough[i];
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int getTotalNumOfCollisions() {
+		return totalNumOfCollisions.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfPersonsInjured() {
+		return totalNumOfPersonsInjured.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfPersonsKilled() {
+		return totalNumOfPersonsKilled.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfCyclistsInjured() {
+		return totalNumOfCyclistsInjured.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfCyclistsKilled() {
+		return totalNumOfCyclistsKilled.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfPedestriansInjured() {
+		return totalNumOfPedestriansInjured.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfPedestriansKilled() {
+		return totalNumOfPedestriansKilled.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfMotoristsInjured() {
+		return totalNumOfMotoristsInjured.intValue();
+	}
+
+	@Override
+	public int getTotalNumOfMotoristsKilled() {
+		return totalNumOfMotoristsKilled.intValue();
+	}
+
+	/*
+	 * The collisions added by the threads mapped to one stripe, guarded by the
+	 * lock of the stripe.
+	 */
+	private static class Stripe {
+		final CollisionStore records;
+		final TimeHistogram collisionsByMinute = new TimeHistogram(1);
+		final VehicleTypeCounts collisionsByVehicleType = new VehicleTypeCounts();
+		final int [] collisionsByBorough = new int [Borough.values().length];
+
+		Stripe(String zip) {
+			records = new CollisionStore(zip);
+		}
+	}
+}
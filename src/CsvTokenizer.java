@@ -0,0 +1,280 @@
+/**
+ * CsvTokenizer splits lines of text according to commas (commas within double
+ * quotes are ignored) in the same way as CollisionInfo.split(), but without
+ * creating any objects per line. The characters of the most recently tokenized
+ * line are kept in a reusable buffer (with double quotes removed) and each entry
+ * is described by its start and end offsets in that buffer. The offsets exclude
+ * the leading and trailing white space, so an entry corresponds to the trimmed
+ * string that split() would produce.
+ * A CsvTokenizer object is meant to be reused for many lines by a single thread.
+ * @author Aaron Walker
+ *
+ */
+public class CsvTokenizer {
+
+	private static final int INITIAL_LINE_LENGTH = 256;
+	private static final int INITIAL_NUM_OF_ENTRIES = 32;
+
+	/* returned by tryParseInt() for entries that are not valid integers */
+	static final long NOT_AN_INT = Long.MIN_VALUE;
+
+	private char[] buffer;
+	private int[] starts;
+	private int[] ends;
+	private int numOfEntries;
+	private final EntryView view = new EntryView();
+	private final EntryView numberView = new EntryView();
+
+	/**
+	 * Creates an empty CsvTokenizer object.
+	 */
+	public CsvTokenizer() {
+		buffer = new char[INITIAL_LINE_LENGTH];
+		starts = new int[INITIAL_NUM_OF_ENTRIES];
+		ends = new int[INITIAL_NUM_OF_ENTRIES];
+	}
+
+	/**
+	 * Splits a given line according to commas (commas within entries are ignored).
+	 * @param textLine line of text to be parsed
+	 * @return the number of entries found on the line
+	 */
+	public int tokenize(String textLine) {
+		int lineLength = textLine.length();
+		//the raw line is copied to the second half of the buffer, the entries
+		//are then stored in the first half
+		ensureCapacity(2 * lineLength);
+		int from = buffer.length - lineLength;
+		textLine.getChars(0, lineLength, buffer, from);
+		return tokenize(buffer, from, buffer.length);
+	}
+
+	/**
+	 * Splits the characters text[from] ... text[to-1] according to commas
+	 * (commas within entries are ignored).
+	 * @param text the array containing the line of text to be parsed
+	 * @param from index of the first character of the line
+	 * @param to index one past the last character of the line
+	 * @return the number of entries found on the line
+	 */
+	public int tokenize(char[] text, int from, int to) {
+		if (text != buffer)
+			ensureCapacity(to - from);
+		numOfEntries = 0;
+		boolean insideQuotes = false;
+		int length = 0;
+		int entryStart = 0;
+
+		for (int i = from; i < to; i++) {
+			char nextChar = text[i];
+			if (nextChar == '"') {
+				insideQuotes = !insideQuotes;
+			}
+			else if (nextChar == ',' && !insideQuotes) {
+				addEntry(entryStart, length);
+				entryStart = length;
+			}
+			else {
+				//the buffer write position never passes the read position, so
+				//the line may be stored in the buffer itself
+				buffer[length++] = nextChar;
+			}
+		}
+		addEntry(entryStart, length);
+		return numOfEntries;
+	}
+
+	/*
+	 * Records an entry occupying buffer[start] ... buffer[end-1], trimmed the way
+	 * String.trim() does it.
+	 */
+	private void addEntry(int start, int end) {
+		while (start < end && buffer[start] <= ' ')
+			start++;
+		while (end > start && buffer[end - 1] <= ' ')
+			end--;
+		if (numOfEntries == starts.length) {
+			int[] newStarts = new int[starts.length * 2];
+			int[] newEnds = new int[ends.length * 2];
+			System.arraycopy(starts, 0, newStarts, 0, numOfEntries);
+			System.arraycopy(ends, 0, newEnds, 0, numOfEntries);
+			starts = newStarts;
+			ends = newEnds;
+		}
+		starts[numOfEntries] = start;
+		ends[numOfEntries] = end;
+		numOfEntries++;
+	}
+
+	/*
+	 * Makes sure the buffer can hold a line of the given length.
+	 */
+	private void ensureCapacity(int lineLength) {
+		if (buffer.length < lineLength) {
+			buffer = new char[Math.max(lineLength, buffer.length * 2)];
+		}
+	}
+
+	/**
+	 * Returns the number of entries found on the most recently tokenized line.
+	 * @return the number of entries
+	 */
+	public int getNumOfEntries() {
+		return numOfEntries;
+	}
+
+	/**
+	 * Returns the length of the given entry.
+	 * @param entry index of the entry
+	 * @return the number of characters in the entry
+	 */
+	public int length(int entry) {
+		checkEntry(entry);
+		return ends[entry] - starts[entry];
+	}
+
+	/**
+	 * Returns a character of the given entry.
+	 * @param entry index of the entry
+	 * @param index index of the character within the entry
+	 * @return the character
+	 */
+	public char charAt(int entry, int index) {
+		checkEntry(entry);
+		if (index < 0 || index >= ends[entry] - starts[entry])
+			throw new IndexOutOfBoundsException("Error: invalid character index " + index);
+		return buffer[starts[entry] + index];
+	}
+
+	/**
+	 * Returns the given entry as a String object.
+	 * @param entry index of the entry
+	 * @return the entry, the same string as the one produced by CollisionInfo.split()
+	 */
+	public String getEntry(int entry) {
+		checkEntry(entry);
+		return new String(buffer, starts[entry], ends[entry] - starts[entry]);
+	}
+
+	/**
+	 * Returns a view of the given entry as a CharSequence. The view does not copy
+	 * the characters of the entry. The same view object is reused by every call of
+	 * this method, so it is valid only until the next call of this method or of one
+	 * of the tokenize() methods.
+	 * @param entry index of the entry
+	 * @return the view of the entry
+	 */
+	public CharSequence getEntryView(int entry) {
+		checkEntry(entry);
+		view.start = starts[entry];
+		view.end = ends[entry];
+		return view;
+	}
+
+	/**
+	 * Parses the given entry as a signed decimal integer, following the same rules
+	 * as Integer.parseInt() but without creating a String object.
+	 * @param entry index of the entry
+	 * @return the integer value of the entry
+	 * @throws NumberFormatException if the entry is not a valid integer
+	 */
+	public int parseInt(int entry) throws NumberFormatException {
+		long result = tryParseInt(entry);
+		if (result == NOT_AN_INT)
+			throw numberFormatException(entry);
+		return (int) result;
+	}
+
+	/**
+	 * Parses the given entry as a signed decimal integer, following the same rules
+	 * as Integer.parseInt(), without creating any object, even if the entry is not
+	 * a valid integer.
+	 * @param entry index of the entry
+	 * @return the integer value of the entry, or NOT_AN_INT if the entry is not a
+	 * valid integer
+	 */
+	long tryParseInt(int entry) {
+		checkEntry(entry);
+		//a view of its own, so a view returned by getEntryView() stays valid
+		numberView.start = starts[entry];
+		numberView.end = ends[entry];
+		return tryParseInt(numberView);
+	}
+
+	/**
+	 * Parses a sequence of characters as a signed decimal integer, following the
+	 * same rules as Integer.parseInt(), without throwing an exception if it is not a
+	 * valid integer.
+	 * @param text the characters to be parsed
+	 * @return the integer value of the characters, or NOT_AN_INT if it is not a valid
+	 * integer
+	 */
+	static long tryParseInt(CharSequence text) {
+		int i = 0;
+		int end = text.length();
+		if (i == end)
+			return NOT_AN_INT;
+
+		boolean negative = false;
+		char first = text.charAt(i);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			i++;
+			if (i == end)
+				return NOT_AN_INT;
+		}
+		//accumulate negatively, the same way Integer.parseInt() does, so that
+		//Integer.MIN_VALUE can be represented
+		int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int result = 0;
+		for (; i < end; i++) {
+			int digit = Character.digit(text.charAt(i), 10);
+			if (digit < 0 || result < limit / 10)
+				return NOT_AN_INT;
+			result *= 10;
+			if (result < limit + digit)
+				return NOT_AN_INT;
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	private NumberFormatException numberFormatException(int entry) {
+		return new NumberFormatException("For input string: \"" + getEntry(entry) + "\"");
+	}
+
+	/*
+	 * A reusable view of a part of the buffer.
+	 */
+	private class EntryView implements CharSequence {
+		int start;
+		int end;
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start)
+				throw new IndexOutOfBoundsException("Error: invalid character index " + index);
+			return buffer[start + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return toString().subSequence(from, to);
+		}
+
+		@Override
+		public String toString() {
+			return new String(buffer, start, end - start);
+		}
+	}
+
+	private void checkEntry(int entry) {
+		if (entry < 0 || entry >= numOfEntries)
+			throw new IndexOutOfBoundsException("Error: invalid entry index " + entry);
+	}
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+
+/**
+ * DateIndex answers questions about the collisions of a zip code within a range of
+ * dates without visiting the collisions. The distinct dates of the collisions are
+ * kept in ascending order together with prefix sums of the number of collisions and
+ * of every count column, so the totals of a range are the difference of two prefix
+ * sums found by binary search. For every vehicle type the dates of the collisions
+ * involving it are kept in ascending order, so the number of such collisions within
+ * a range is the distance between two positions found by binary search.
+ * A DateIndex describes the collisions present when it was built, collisions without
+ * a valid date are not included.
+ * @author Aaron Walker
+ *
+ */
+class DateIndex {
+
+	private static final int [] NO_DAYS = new int [0];
+
+	/* number of rows of the store when the index was built */
+	private final int size;
+	/* distinct epoch days, ascending */
+	private final int [] days;
+	/* collisionSums[i] is the number of collisions on days[0] ... days[i-1] */
+	private final int [] collisionSums;
+	/* countSums[c][i] is the sum of count column c on days[0] ... days[i-1] */
+	private final int [][] countSums;
+	/* for every vehicle type code the ascending days of the collisions involving it */
+	private final int [][] vehicleTypeDays;
+
+	/**
+	 * Builds the index of the collisions held by the given store.
+	 * @param records the collisions of a zip code
+	 */
+	DateIndex ( RecordStore records ) {
+		size = records.size();
+
+		//the distinct days, ascending
+		int [] sorted = new int [size];
+		int numOfDated = 0;
+		for (int row = 0; row < size; row++) {
+			int day = records.getEpochDay(row);
+			if (day != Collision.NO_DATE)
+				sorted[numOfDated++] = day;
+		}
+		Arrays.sort(sorted, 0, numOfDated);
+		int numOfDays = 0;
+		for (int i = 0; i < numOfDated; i++) {
+			if (numOfDays == 0 || sorted[i] != sorted[numOfDays - 1])
+				sorted[numOfDays++] = sorted[i];
+		}
+		days = Arrays.copyOf(sorted, numOfDays);
+
+		//the totals of every day, turned into prefix sums
+		collisionSums = new int [numOfDays + 1];
+		countSums = new int [CollisionStore.NUM_OF_COUNTS][numOfDays + 1];
+		int [] vehicleTypeCounts = new int [VehicleTypeDictionary.size()];
+		for (int row = 0; row < size; row++) {
+			int day = records.getEpochDay(row);
+			if (day == Collision.NO_DATE)
+				continue;
+			int i = Arrays.binarySearch(days, day) + 1;
+			collisionSums[i]++;
+			for (int c = 0; c < CollisionStore.NUM_OF_COUNTS; c++)
+				countSums[c][i] += records.getCount(c, row);
+			vehicleTypeCounts = count(vehicleTypeCounts, records.getVehicleType1(row), records.getVehicleType2(row));
+		}
+		for (int i = 1; i <= numOfDays; i++) {
+			collisionSums[i] += collisionSums[i - 1];
+			for (int c = 0; c < CollisionStore.NUM_OF_COUNTS; c++)
+				countSums[c][i] += countSums[c][i - 1];
+		}
+
+		//the days of every vehicle type
+		vehicleTypeDays = new int [vehicleTypeCounts.length][];
+		int [] filled = new int [vehicleTypeCounts.length];
+		for (int code = 0; code < vehicleTypeCounts.length; code++)
+			vehicleTypeDays[code] = vehicleTypeCounts[code] == 0 ? NO_DAYS : new int [vehicleTypeCounts[code]];
+		for (int row = 0; row < size; row++) {
+			int day = records.getEpochDay(row);
+			if (day == Collision.NO_DATE)
+				continue;
+			short type1 = records.getVehicleType1(row);
+			short type2 = records.getVehicleType2(row);
+			vehicleTypeDays[type1][filled[type1]++] = day;
+			if (type2 != type1)
+				vehicleTypeDays[type2][filled[type2]++] = day;
+		}
+		for (int [] typeDays : vehicleTypeDays)
+			Arrays.sort(typeDays);
+	}
+
+	/*
+	 * Counts a collision involving the given vehicle types, a collision involving two
+	 * vehicles of the same type is counted once. Returns the (possibly grown) counters.
+	 */
+	private static int [] count ( int [] counts, short type1, short type2 ) {
+		int max = Math.max(type1, type2);
+		if (max >= counts.length)
+			counts = Arrays.copyOf(counts, max + 1);
+		counts[type1]++;
+		if (type2 != type1)
+			counts[type2]++;
+		return counts;
+	}
+
+	/**
+	 * Returns the number of rows of the store at the time this index was built.
+	 * @return the number of collisions described by this index, including the ones
+	 * without a valid date
+	 */
+	int size ( ) {
+		return size;
+	}
+
+	/**
+	 * Computes the totals of the collisions that occurred between the given days.
+	 * @param fromDay the first day of the range, as an epoch day
+	 * @param toDay the last day of the range, as an epoch day
+	 * @return the totals of the collisions within the range, all zero if toDay
+	 * precedes fromDay
+	 */
+	DateRangeTotals getTotals ( int fromDay, int toDay ) {
+		int from = firstAfter(days, fromDay - 1L);
+		int to = Math.max(from, firstAfter(days, toDay));
+		int [] counts = new int [CollisionStore.NUM_OF_COUNTS];
+		for (int c = 0; c < CollisionStore.NUM_OF_COUNTS; c++)
+			counts[c] = countSums[c][to] - countSums[c][from];
+		return new DateRangeTotals(fromDay, toDay, collisionSums[to] - collisionSums[from], counts);
+	}
+
+	/**
+	 * Computes the number of collisions involving the given vehicle type that occurred
+	 * between the given days.
+	 * @param vehicleType the code of the vehicle type, a negative code stands for a
+	 * vehicle type that was never seen
+	 * @param fromDay the first day of the range, as an epoch day
+	 * @param toDay the last day of the range, as an epoch day
+	 * @return the number of collisions
+	 */
+	int getNumOfCollisions ( int vehicleType, int fromDay, int toDay ) {
+		if (vehicleType < 0 || vehicleType >= vehicleTypeDays.length)
+			return 0;
+		int [] typeDays = vehicleTypeDays[vehicleType];
+		int from = firstAfter(typeDays, fromDay - 1L);
+		return Math.max(0, firstAfter(typeDays, toDay) - from);
+	}
+
+	/*
+	 * Returns the index of the first element of the ascending array that is larger
+	 * than key, or the length of the array if there is no such element.
+	 */
+	private static int firstAfter ( int [] sorted, long key ) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sorted[middle] <= key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+}
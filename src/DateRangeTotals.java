@@ -0,0 +1,127 @@
+/**
+ * DateRangeTotals holds the number of collisions, injuries and fatalities of a zip
+ * code within a range of dates, as computed by ZipCodeList.getTotals().
+ * @author Aaron Walker
+ *
+ */
+public class DateRangeTotals {
+
+	private final int fromDay;
+	private final int toDay;
+	private final int numOfCollisions;
+	private final int [] counts;
+
+	/*
+	 * Creates a DateRangeTotals object. The counts are indexed by the count column
+	 * constants of CollisionStore.
+	 */
+	DateRangeTotals ( int fromDay, int toDay, int numOfCollisions, int [] counts ) {
+		this.fromDay = fromDay;
+		this.toDay = toDay;
+		this.numOfCollisions = numOfCollisions;
+		this.counts = counts;
+	}
+
+	/**
+	 * Returns the first day of the range.
+	 * @return the first day as an epoch day
+	 */
+	public int getFromDay() {
+		return fromDay;
+	}
+
+	/**
+	 * Returns the last day of the range, the range includes this day.
+	 * @return the last day as an epoch day
+	 */
+	public int getToDay() {
+		return toDay;
+	}
+
+	/**
+	 * Returns the number of collisions within the range.
+	 * @return the numOfCollisions
+	 */
+	public int getNumOfCollisions() {
+		return numOfCollisions;
+	}
+
+	/**
+	 * Returns the number of persons injured within the range.
+	 * @return the numOfPersonsInjured
+	 */
+	public int getNumOfPersonsInjured() {
+		return counts[CollisionStore.PERSONS_INJURED];
+	}
+
+	/**
+	 * Returns the number of persons killed within the range.
+	 * @return the numOfPersonsKilled
+	 */
+	public int getNumOfPersonsKilled() {
+		return counts[CollisionStore.PERSONS_KILLED];
+	}
+
+	/**
+	 * Returns the number of pedestrians injured within the range.
+	 * @return the numOfPedestriansInjured
+	 */
+	public int getNumOfPedestriansInjured() {
+		return counts[CollisionStore.PEDESTRIANS_INJURED];
+	}
+
+	/**
+	 * Returns the number of pedestrians killed within the range.
+	 * @return the numOfPedestriansKilled
+	 */
+	public int getNumOfPedestriansKilled() {
+		return counts[CollisionStore.PEDESTRIANS_KILLED];
+	}
+
+	/**
+	 * Returns the number of cyclists injured within the range.
+	 * @return the numOfCyclistsInjured
+	 */
+	public int getNumOfCyclistsInjured() {
+		return counts[CollisionStore.CYCLISTS_INJURED];
+	}
+
+	/**
+	 * Returns the number of cyclists killed within the range.
+	 * @return the numOfCyclistsKilled
+	 */
+	public int getNumOfCyclistsKilled() {
+		return counts[CollisionStore.CYCLISTS_KILLED];
+	}
+
+	/**
+	 * Returns the number of motorists injured within the range.
+	 * @return the numOfMotoristsInjured
+	 */
+	public int getNumOfMotoristsInjured() {
+		return counts[CollisionStore.MOTORISTS_INJURED];
+	}
+
+	/**
+	 * Returns the number of motorists killed within the range.
+	 * @return the numOfMotoristsKilled
+	 */
+	public int getNumOfMotoristsKilled() {
+		return counts[CollisionStore.MOTORISTS_KILLED];
+	}
+
+	/**
+	 * Computes and returns a string representation of this DateRangeTotals object.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DateRangeTotals [fromDay=" + fromDay + ", toDay=" + toDay + ", numOfCollisions="
+				+ numOfCollisions + ", personsInjured=" + getNumOfPersonsInjured() + ", personsKilled="
+				+ getNumOfPersonsKilled() + ", pedestriansInjured=" + getNumOfPedestriansInjured()
+				+ ", pedestriansKilled=" + getNumOfPedestriansKilled() + ", cyclistsInjured="
+				+ getNumOfCyclistsInjured() + ", cyclistsKilled=" + getNumOfCyclistsKilled()
+				+ ", motoristsInjured=" + getNumOfMotoristsInjured() + ", motoristsKilled="
+				+ getNumOfMotoristsKilled() + "]";
+	}
+}
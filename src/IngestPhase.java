@@ -0,0 +1,19 @@
+/**
+ * Enumerator listing the phases of loading a collision data file whose latencies 
+ * are kept by CollisionMetrics: reading a unit of the file (a line, a batch of 
+ * lines or a chunk, depending on the reader), splitting a line into its entries, 
+ * creating a Collision object from the entries and adding it to a CollisionList. 
+ * @author Aaron Walker
+ *
+ */
+enum IngestPhase { 
+	READ, SPLIT, CONSTRUCT, ADD;
+
+	/**
+	 * Returns the name of this phase used in the metrics. 
+	 * @return the name in lower case 
+	 */
+	String getName() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in nanoseconds in buckets whose bounds are 
+ * powers of two, so recording a duration is a few uncontended additions and the 
+ * percentiles are known within a factor of two. Bucket 0 holds the durations of 
+ * 0 nanoseconds, bucket i the durations from 2^(i-1) to 2^i - 1 nanoseconds. 
+ * Several threads can record durations at the same time. 
+ * @author Aaron Walker
+ *
+ */
+class LatencyHistogram {
+
+	private static final int NUM_OF_BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[NUM_OF_BUCKETS];
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates an empty LatencyHistogram. 
+	 */
+	LatencyHistogram ( ) {
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) 
+			buckets[i] = new LongAdder();
+	}
+
+	/**
+	 * Records a duration. 
+	 * @param nanos the duration in nanoseconds, negative durations are counted as 0 
+	 */
+	void record ( long nanos ) {
+		if (nanos < 0) 
+			nanos = 0;
+		buckets[NUM_OF_BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Returns the number of durations recorded. 
+	 * @return the count 
+	 */
+	long getCount ( ) {
+		long result = 0;
+		for (LongAdder bucket : buckets) 
+			result += bucket.sum();
+		return result;
+	}
+
+	/**
+	 * Returns the mean of the durations recorded. 
+	 * @return the mean in nanoseconds, 0 if no duration was recorded 
+	 */
+	long getMeanNanos ( ) {
+		long count = getCount();
+		return count == 0 ? 0 : totalNanos.sum() / count;
+	}
+
+	/**
+	 * Returns the longest duration recorded. 
+	 * @return the maximum in nanoseconds, 0 if no duration was recorded 
+	 */
+	long getMaxNanos ( ) {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns an upper bound of the given percentile of the durations recorded: the 
+	 * upper bound of the bucket holding the percentile, but at most the maximum. 
+	 * @param percentile the percentile, between 0 and 100 
+	 * @return the percentile in nanoseconds, 0 if no duration was recorded 
+	 */
+	long getPercentileNanos ( double percentile ) {
+		long [] counts = new long [NUM_OF_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+		if (count == 0) 
+			return 0;
+		long rank = (long) Math.ceil(percentile / 100 * count);
+		long seen = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				long upper = i == 0 ? 0 : (i == NUM_OF_BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+				return Math.min(upper, getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * LongHashSet is a set of long values kept in a single array with open addressing
+ * and linear probing, so a value takes 8 bytes of the array (about 11 to 21 bytes
+ * per value with the load factor of the table) and no objects are created per value.
+ * The value 0 marks the empty slots of the array, whether 0 itself is in the set is
+ * kept separately. Values cannot be removed. This class is not thread-safe.
+ * @author Aaron Walker
+ *
+ */
+class LongHashSet {
+
+	private static final int INITIAL_CAPACITY = 16;
+	/* the table is doubled when it would become fuller than 3/4 */
+	private static final int MAX_LOAD_NUMERATOR = 3;
+	private static final int MAX_LOAD_DENOMINATOR = 4;
+
+	private long [] table;
+	private int size;
+	private boolean containsZero;
+
+	/**
+	 * Creates an empty LongHashSet.
+	 */
+	LongHashSet ( ) {
+		table = new long [INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds a value to this set.
+	 * @param value the value to be added
+	 * @return true if the value was added, false if it was already in this set
+	 */
+	boolean add ( long value ) {
+		if (value == 0) {
+			if (containsZero)
+				return false;
+			containsZero = true;
+			size++;
+			return true;
+		}
+		if ((size + 1) * MAX_LOAD_DENOMINATOR > table.length * MAX_LOAD_NUMERATOR)
+			rehash(table.length * 2);
+		int mask = table.length - 1;
+		int slot = slotOf(value, mask);
+		while (table[slot] != 0) {
+			if (table[slot] == value)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = value;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Checks whether a value is in this set.
+	 * @param value the value to be looked up
+	 * @return true if the value is in this set, false otherwise
+	 */
+	boolean contains ( long value ) {
+		if (value == 0)
+			return containsZero;
+		int mask = table.length - 1;
+		int slot = slotOf(value, mask);
+		while (table[slot] != 0) {
+			if (table[slot] == value)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds all values of another set to this set.
+	 * @param other the other set, it is not modified
+	 */
+	void addAll ( LongHashSet other ) {
+		for (long value : other.values())
+			add(value);
+	}
+
+	/**
+	 * Returns the values of this set in no particular order.
+	 * @return a new array holding the values
+	 */
+	long [] values ( ) {
+		long [] result = new long [size];
+		int i = 0;
+		if (containsZero)
+			result[i++] = 0;
+		for (long value : table) {
+			if (value != 0)
+				result[i++] = value;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of values in this set.
+	 * @return the size
+	 */
+	int size ( ) {
+		return size;
+	}
+
+	/*
+	 * Moves the values into a new table of the given capacity, a power of two.
+	 */
+	private void rehash ( int capacity ) {
+		long [] old = table;
+		table = new long [capacity];
+		int mask = capacity - 1;
+		for (long value : old) {
+			if (value == 0)
+				continue;
+			int slot = slotOf(value, mask);
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = value;
+		}
+	}
+
+	/*
+	 * Returns the home slot of a value. The bits of the value are mixed first, so
+	 * consecutive values (such as the unique keys of a data file) are spread over
+	 * the table.
+	 */
+	private static int slotOf ( long value, int mask ) {
+		return (int) mix(value) & mask;
+	}
+
+	/*
+	 * Mixes the bits of a value (the finalizer of MurmurHash3).
+	 */
+	static long mix ( long value ) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+}
@@ -0,0 +1,242 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MappedCollisionReader loads a collision data file into a CollisionList object
+ * by memory-mapping the file, splitting it into chunks that end on line
+ * boundaries and parsing the chunks on several threads. The parsed chunks are
+ * added to the CollisionList in the order in which they appear in the file, so
+ * the resulting CollisionList is the same as the one built by reading the
+ * file line by line. A ConcurrentCollisionList is instead filled directly by
+ * the parsing threads.
+ * @author Aaron Walker
+ *
+ */
+public class MappedCollisionReader {
+
+	/* largest chunk mapped and decoded at once */
+	private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+	/* chunks smaller than this are not worth handing to another thread */
+	private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+	/* number of chunks per thread, gives the pool some room to balance the work */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final int numOfThreads;
+	private final Charset charset;
+
+	/**
+	 * Creates a MappedCollisionReader that uses one thread per available processor.
+	 */
+	public MappedCollisionReader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a MappedCollisionReader that uses the given number of threads.
+	 * @param numOfThreads number of threads used for parsing
+	 * @throws IllegalArgumentException if numOfThreads is smaller than 1
+	 */
+	public MappedCollisionReader(int numOfThreads) throws IllegalArgumentException {
+		if (numOfThreads < 1)
+			throw new IllegalArgumentException("Error: number of threads has to be positive. ");
+		this.numOfThreads = numOfThreads;
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * Reads all the records from the given file and adds them to the list.
+	 * Lines that do not contain exactly numOfEntries entries are skipped.
+	 * @param file the file to be read
+	 * @param list the CollisionList object to which the records are added
+	 * @param numOfEntries the number of entries a complete line has
+	 * @throws IOException if the file cannot be read
+	 */
+	public void read(File file, CollisionList list, int numOfEntries) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ExecutorService pool = Executors.newFixedThreadPool(numOfThreads);
+		try {
+			FileChannel channel = raf.getChannel();
+			long[] bounds = findChunkBoundaries(channel);
+
+			//a concurrent list does not need the chunks to be merged by this thread
+			CollisionList target = list instanceof ConcurrentCollisionList ? list : null;
+			ArrayList<Future<ArrayList<Collision>>> chunks =
+					new ArrayList<Future<ArrayList<Collision>>>();
+			for (int i = 0; i < bounds.length - 1; i++) {
+				chunks.add(pool.submit(new ChunkParser(channel, bounds[i], bounds[i + 1], 
+						numOfEntries, target, list.getMetrics())));
+			}
+			//merge the chunks in file order
+			for (Future<ArrayList<Collision>> chunk : chunks) {
+				for (Collision col : chunk.get()) {
+					list.add(col);
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Reading of " + file + " was interrupted", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			throw new IOException("Cannot parse " + file, ex.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+			raf.close();
+		}
+	}
+
+	/*
+	 * Splits the file into chunks that start at the beginning of a line.
+	 * @param channel the channel of the file to be split
+	 * @return the array of chunk offsets, the first element is 0 and the last one is
+	 * the size of the file
+	 */
+	private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long chunkSize = size / ((long) numOfThreads * CHUNKS_PER_THREAD) + 1;
+		chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+		ArrayList<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		long next = chunkSize;
+		while (next < size) {
+			long lineStart = findLineStart(channel, next, size);
+			if (lineStart >= size)
+				break;
+			bounds.add(lineStart);
+			next = lineStart + chunkSize;
+		}
+		bounds.add(size);
+
+		long[] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = bounds.get(i);
+		return result;
+	}
+
+	/*
+	 * Finds the offset of the first line that starts at or after position.
+	 */
+	private static long findLineStart(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(8192);
+		long pos = position;
+		while (pos < size) {
+			buf.clear();
+			int n = channel.read(buf, pos);
+			if (n <= 0)
+				break;
+			for (int i = 0; i < n; i++) {
+				if (buf.get(i) == '\n')
+					return pos + i + 1;
+			}
+			pos += n;
+		}
+		return size;
+	}
+
+	/*
+	 * Parses the lines of a single chunk of the file into Collision objects. The
+	 * collisions are returned, or added directly to the target list if it is given.
+	 */
+	private class ChunkParser implements Callable<ArrayList<Collision>> {
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final int numOfEntries;
+		private final CollisionList target;
+		private final CollisionMetrics metrics;
+
+		ChunkParser(FileChannel channel, long start, long end, int numOfEntries, 
+				CollisionList target, CollisionMetrics metrics) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.numOfEntries = numOfEntries;
+			this.target = target;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public ArrayList<Collision> call() throws IOException {
+			long readStart = metrics == null ? 0 : System.nanoTime();
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			CharBuffer chars = decode(bytes);
+			if (metrics != null) {
+				metrics.record(IngestPhase.READ, System.nanoTime() - readStart);
+				metrics.bytesRead(end - start);
+			}
+			char[] text = chars.array();
+			int from = chars.arrayOffset() + chars.position();
+			int to = chars.arrayOffset() + chars.limit();
+
+			ArrayList<Collision> collisions = new ArrayList<Collision>();
+			CsvTokenizer words = new CsvTokenizer();
+			int lineStart = from;
+			for (int i = from; i < to; i++) {
+				char c = text[i];
+				if (isLineTerminator(c)) {
+					parseLine(words, text, lineStart, i, collisions);
+					//treat \r\n as a single line terminator
+					if (c == '\r' && i + 1 < to && text[i + 1] == '\n')
+						i++;
+					lineStart = i + 1;
+				}
+			}
+			//the last line of the file does not have to be terminated
+			if (lineStart < to)
+				parseLine(words, text, lineStart, to, collisions);
+			return collisions;
+		}
+
+		private void parseLine(CsvTokenizer words, char[] text, int from, int to,
+				ArrayList<Collision> collisions) {
+			long splitStart = metrics == null ? 0 : System.nanoTime();
+			boolean complete = words.tokenize(text, from, to) == numOfEntries;
+			if (metrics != null)
+				metrics.lineSplit(System.nanoTime() - splitStart, complete);
+			if (!complete) {
+				return; //skip lines that are not complete
+			}
+			//records that cannot be turned into Collision objects are skipped
+			Collision col = Collision.parse(words, metrics);
+			if (col == null)
+				return;
+			if (target != null)
+				target.add(col);
+			else
+				collisions.add(col);
+		}
+
+		private CharBuffer decode(ByteBuffer bytes) throws CharacterCodingException {
+			return charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE)
+					.decode(bytes);
+		}
+	}
+
+	/*
+	 * Line terminators recognized by java.util.Scanner.nextLine().
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+	}
+}
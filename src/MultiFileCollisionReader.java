@@ -0,0 +1,197 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MultiFileCollisionReader loads several collision data files, for example monthly
+ * or yearly extracts, into a single CollisionList object. Every file is read on its
+ * own thread into its own partial CollisionList, and the partial lists are merged
+ * with CollisionList.merge() in the order in which the files are given, so the
+ * result is the same as the one of reading the files one after the other, while the
+ * time spent approaches the time of reading the largest file. Each file is read the
+ * same way as by MappedCollisionReader.
+ * @author Aaron Walker
+ *
+ */
+public class MultiFileCollisionReader {
+
+	private final int numOfThreads;
+	private CollisionMetrics metrics;
+	private boolean offHeap;
+
+	/**
+	 * Creates a MultiFileCollisionReader that reads as many files at the same time
+	 * as there are available processors.
+	 */
+	public MultiFileCollisionReader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a MultiFileCollisionReader that reads the given number of files at the
+	 * same time.
+	 * @param numOfThreads number of files read at the same time
+	 * @throws IllegalArgumentException if numOfThreads is smaller than 1
+	 */
+	public MultiFileCollisionReader(int numOfThreads) throws IllegalArgumentException {
+		if (numOfThreads < 1)
+			throw new IllegalArgumentException("Error: number of threads has to be positive. ");
+		this.numOfThreads = numOfThreads;
+	}
+
+	/**
+	 * Makes the lists created by this reader, and the readers of the single files,
+	 * record their counts and durations into the given metrics.
+	 * @param metrics the metrics, or null to stop recording
+	 * @see CollisionList#setMetrics(CollisionMetrics)
+	 */
+	public void setMetrics(CollisionMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Makes the lists created by this reader keep their collisions outside of the heap.
+	 * @param offHeap true to keep the collisions off the heap
+	 * @see CollisionList#setOffHeap(boolean)
+	 */
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * Reads all the records from the given files into a new CollisionList object.
+	 * Lines that do not contain exactly numOfEntries entries are skipped.
+	 * @param files the files to be read, in the order in which their records are
+	 * added
+	 * @param numOfEntries the number of entries a complete line has
+	 * @param retainRecords false to create a list in streaming mode
+	 * @return the CollisionList object holding the records of all files
+	 * @throws IOException if one of the files cannot be read
+	 */
+	public CollisionList read(List<File> files, int numOfEntries, boolean retainRecords)
+			throws IOException {
+		return read(files, numOfEntries, retainRecords, false);
+	}
+
+	/**
+	 * Reads all the records from the given files into a new CollisionList object,
+	 * optionally dropping the records whose unique key has already been read, from the
+	 * same file or from another one (see CollisionList.setDeduplication()).
+	 * Lines that do not contain exactly numOfEntries entries are skipped.
+	 * Partial lists that share unique keys are merged record by record. As the records
+	 * of a list in streaming mode are not kept, the files are then read one after the
+	 * other into the resulting list instead.
+	 * @param files the files to be read, in the order in which their records are
+	 * added
+	 * @param numOfEntries the number of entries a complete line has
+	 * @param retainRecords false to create a list in streaming mode
+	 * @param deduplicate true to drop the records whose unique key was already read
+	 * @return the CollisionList object holding the records of all files
+	 * @throws IOException if one of the files cannot be read
+	 */
+	public CollisionList read(List<File> files, final int numOfEntries, final boolean retainRecords,
+			final boolean deduplicate) throws IOException {
+		CollisionList result = new CollisionList(retainRecords);
+		result.setDeduplication(deduplicate);
+		result.setMetrics(metrics);
+		result.setOffHeap(offHeap);
+		if (deduplicate && !retainRecords) {
+			for (File file : files)
+				new MappedCollisionReader(numOfThreads).read(file, result, numOfEntries);
+			return result;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(numOfThreads, files.size())));
+		File current = null;
+		try {
+			ArrayList<Future<CollisionList>> partials = new ArrayList<Future<CollisionList>>();
+			for (final File file : files) {
+				partials.add(pool.submit(new Callable<CollisionList>() {
+					@Override
+					public CollisionList call() throws IOException {
+						CollisionList partial = new CollisionList(retainRecords);
+						partial.setDeduplication(deduplicate);
+						partial.setMetrics(metrics);
+						partial.setOffHeap(offHeap);
+						new MappedCollisionReader(1).read(file, partial, numOfEntries);
+						return partial;
+					}
+				}));
+			}
+			//merge the partial lists in the order of the files, while the later ones are read
+			for (int i = 0; i < partials.size(); i++) {
+				current = files.get(i);
+				result.merge(partials.get(i).get());
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Reading of " + current + " was interrupted", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			throw new IOException("Cannot parse " + current, ex.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return result;
+	}
+
+	/**
+	 * Lists the input files named by a command line argument. The argument can be the
+	 * name of a file, the name of a directory, in which case all files in it whose
+	 * names end with .csv are listed, or a pattern such as data/2015-*.csv whose last
+	 * part contains the wildcards *, ? or [ ] (see FileSystem.getPathMatcher()).
+	 * @param name the name of the file or directory, or the pattern
+	 * @return the files, sorted by name unless a single file is named
+	 * @throws IOException if the directory cannot be listed
+	 */
+	public static List<File> listInputFiles(String name) throws IOException {
+		File file = new File(name);
+		ArrayList<File> result = new ArrayList<File>();
+		if (file.isDirectory()) {
+			File[] entries = file.listFiles();
+			if (entries == null)
+				throw new IOException("Cannot list directory " + file);
+			for (File entry : entries) {
+				if (entry.isFile() && entry.getName().toLowerCase().endsWith(".csv"))
+					result.add(entry);
+			}
+		}
+		else if (isPattern(file.getName())) {
+			File directory = file.getAbsoluteFile().getParentFile();
+			File[] entries = directory.listFiles();
+			if (entries == null)
+				throw new IOException("Cannot list directory " + directory);
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + file.getName());
+			for (File entry : entries) {
+				if (entry.isFile() && matcher.matches(entry.toPath().getFileName()))
+					result.add(new File(file.getParentFile(), entry.getName()));
+			}
+		}
+		else {
+			result.add(file);
+			return result;
+		}
+		File[] sorted = result.toArray(new File[result.size()]);
+		Arrays.sort(sorted);
+		return Arrays.asList(sorted);
+	}
+
+	/*
+	 * Returns true if the name contains one of the wildcards of a glob pattern.
+	 */
+	private static boolean isPattern(String name) {
+		return name.indexOf('*') >= 0 || name.indexOf('?') >= 0 || name.indexOf('[') >= 0;
+	}
+}
@@ -0,0 +1,229 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * OffHeapCollisionStore keeps the records of collisions outside of the Java heap, in
+ * direct ByteBuffers, so the garbage collector neither traces nor copies them and
+ * its pauses do not grow with the number of collisions kept. Every collision takes a
+ * slot of SLOT_SIZE bytes:
+ *   the unique key (long), the epoch day (int), the latitude and longitude (floats),
+ *   the minute of the day and the codes of the two vehicle types (shorts), the
+ *   ordinal of the borough, flags marking the fields kept on the heap and the eight
+ *   counts, one unsigned byte each
+ * and the fields are read directly from the slot. The slots are kept in chunks that
+ * double in size from FIRST_CHUNK_SLOTS to MAX_CHUNK_SLOTS slots, so a small zip code
+ * takes little memory and a growing store never copies its records.
+ * The few collisions with a count outside 0 to 255, or with a unique key that is not a
+ * plain number, keep these fields in maps on the heap.
+ * The memory of a store is released when the store is garbage collected. The total
+ * size of the direct buffers is limited by -XX:MaxDirectMemorySize, by default the
+ * largest size of the heap.
+ * @author Aaron Walker
+ *
+ */
+class OffHeapCollisionStore extends RecordStore {
+
+	/** Size in bytes of the slot of a collision. */
+	static final int SLOT_SIZE = 36;
+
+	/* offsets of the fields within a slot */
+	private static final int UNIQUE_KEY = 0;
+	private static final int EPOCH_DAY = 8;
+	private static final int LATITUDE = 12;
+	private static final int LONGITUDE = 16;
+	private static final int MINUTE_OF_DAY = 20;
+	private static final int VEHICLE_TYPE_1 = 22;
+	private static final int VEHICLE_TYPE_2 = 24;
+	private static final int BOROUGH = 26;
+	private static final int FLAGS = 27;
+	private static final int COUNTS = 28;
+
+	/* flags of a slot */
+	private static final byte WIDE_COUNTS = 1;
+	private static final byte KEY_TEXT = 2;
+
+	private static final int FIRST_CHUNK_SHIFT = 6;
+	private static final int MAX_CHUNK_SHIFT = 12;
+	/** Number of slots of the first chunk. */
+	static final int FIRST_CHUNK_SLOTS = 1 << FIRST_CHUNK_SHIFT;
+	/** Largest number of slots of a chunk. */
+	static final int MAX_CHUNK_SLOTS = 1 << MAX_CHUNK_SHIFT;
+	/* number of slots of the chunks smaller than MAX_CHUNK_SLOTS */
+	private static final int DOUBLING_SLOTS = MAX_CHUNK_SLOTS - FIRST_CHUNK_SLOTS;
+
+	private ByteBuffer[] chunks = new ByteBuffer[0];
+	private int capacity;
+	private int size;
+	//counts of the rows flagged WIDE_COUNTS, created when the first one is added
+	private HashMap<Integer, int[]> wideCounts;
+	//unique keys of the rows flagged KEY_TEXT, created when the first one is added
+	private HashMap<Integer, String> uniqueKeyTexts;
+	//columns holding a value that does not fit in a byte, see isWide()
+	private final boolean[] wideColumns = new boolean[NUM_OF_COUNTS];
+
+	/**
+	 * Creates an empty OffHeapCollisionStore for collisions from the given zip code.
+	 * No memory is allocated before the first collision is added.
+	 * @param zip the zip code shared by all collisions in this store
+	 */
+	OffHeapCollisionStore(String zip) {
+		super(zip);
+	}
+
+	@Override
+	void add(Collision col) {
+		if (size == capacity)
+			addChunk();
+		ByteBuffer chunk = chunkOf(size);
+		int slot = offsetOf(size);
+		byte flags = 0;
+
+		boolean narrow = true;
+		for (int column = 0; column < NUM_OF_COUNTS; column++) {
+			int value = col.getCount(column);
+			if (value != (byte) value)
+				wideColumns[column] = true;
+			if (value >>> 8 != 0)
+				narrow = false;
+		}
+		if (narrow) {
+			for (int column = 0; column < NUM_OF_COUNTS; column++)
+				chunk.put(slot + COUNTS + column, (byte) col.getCount(column));
+		}
+		else {
+			int[] counts = new int[NUM_OF_COUNTS];
+			for (int column = 0; column < NUM_OF_COUNTS; column++)
+				counts[column] = col.getCount(column);
+			if (wideCounts == null)
+				wideCounts = new HashMap<Integer, int[]>();
+			wideCounts.put(size, counts);
+			flags |= WIDE_COUNTS;
+		}
+		if (col.getUniqueKeyText() != null) {
+			if (uniqueKeyTexts == null)
+				uniqueKeyTexts = new HashMap<Integer, String>();
+			uniqueKeyTexts.put(size, col.getUniqueKeyText());
+			flags |= KEY_TEXT;
+		}
+
+		chunk.putLong(slot + UNIQUE_KEY, col.getNumericUniqueKey());
+		chunk.putInt(slot + EPOCH_DAY, col.getEpochDay());
+		chunk.putFloat(slot + LATITUDE, col.getLatitude());
+		chunk.putFloat(slot + LONGITUDE, col.getLongitude());
+		chunk.putShort(slot + MINUTE_OF_DAY, col.getMinuteOfDay());
+		chunk.putShort(slot + VEHICLE_TYPE_1, col.getVehicleType1());
+		chunk.putShort(slot + VEHICLE_TYPE_2, col.getVehicleType2());
+		chunk.put(slot + BOROUGH, (byte) col.getBoroughValue().ordinal());
+		chunk.put(slot + FLAGS, flags);
+		size++;
+	}
+
+	/*
+	 * Allocates the next chunk, twice the size of the previous one up to MAX_CHUNK_SLOTS.
+	 */
+	private void addChunk() {
+		//cap the shift itself, a shift by the number of chunks would overflow
+		int slots = FIRST_CHUNK_SLOTS << Math.min(chunks.length, MAX_CHUNK_SHIFT - FIRST_CHUNK_SHIFT);
+		chunks = Arrays.copyOf(chunks, chunks.length + 1);
+		chunks[chunks.length - 1] = ByteBuffer.allocateDirect(slots * SLOT_SIZE).order(ByteOrder.nativeOrder());
+		capacity += slots;
+	}
+
+	/*
+	 * Returns the chunk holding the slot of the given row.
+	 */
+	private ByteBuffer chunkOf(int row) {
+		if (row < DOUBLING_SLOTS)
+			return chunks[31 - Integer.numberOfLeadingZeros((row >>> FIRST_CHUNK_SHIFT) + 1)];
+		return chunks[MAX_CHUNK_SHIFT - FIRST_CHUNK_SHIFT + ((row - DOUBLING_SLOTS) >>> MAX_CHUNK_SHIFT)];
+	}
+
+	/*
+	 * Returns the position of the slot of the given row within its chunk.
+	 */
+	private int offsetOf(int row) {
+		if (row < DOUBLING_SLOTS) {
+			int chunk = 31 - Integer.numberOfLeadingZeros((row >>> FIRST_CHUNK_SHIFT) + 1);
+			return (row - (((1 << chunk) - 1) << FIRST_CHUNK_SHIFT)) * SLOT_SIZE;
+		}
+		return ((row - DOUBLING_SLOTS) & (MAX_CHUNK_SLOTS - 1)) * SLOT_SIZE;
+	}
+
+	@Override
+	int size() {
+		return size;
+	}
+
+	@Override
+	int getEpochDay(int row) {
+		checkRow(row);
+		return chunkOf(row).getInt(offsetOf(row) + EPOCH_DAY);
+	}
+
+	@Override
+	short getMinuteOfDay(int row) {
+		checkRow(row);
+		return chunkOf(row).getShort(offsetOf(row) + MINUTE_OF_DAY);
+	}
+
+	@Override
+	Borough getBorough(int row) {
+		checkRow(row);
+		return Borough.ofOrdinal(chunkOf(row).get(offsetOf(row) + BOROUGH));
+	}
+
+	@Override
+	float getLatitude(int row) {
+		checkRow(row);
+		return chunkOf(row).getFloat(offsetOf(row) + LATITUDE);
+	}
+
+	@Override
+	float getLongitude(int row) {
+		checkRow(row);
+		return chunkOf(row).getFloat(offsetOf(row) + LONGITUDE);
+	}
+
+	@Override
+	short getVehicleType1(int row) {
+		checkRow(row);
+		return chunkOf(row).getShort(offsetOf(row) + VEHICLE_TYPE_1);
+	}
+
+	@Override
+	short getVehicleType2(int row) {
+		checkRow(row);
+		return chunkOf(row).getShort(offsetOf(row) + VEHICLE_TYPE_2);
+	}
+
+	@Override
+	int getCount(int column, int row) {
+		checkRow(row);
+		ByteBuffer chunk = chunkOf(row);
+		int slot = offsetOf(row);
+		if ((chunk.get(slot + FLAGS) & WIDE_COUNTS) != 0)
+			return wideCounts.get(row)[column];
+		return chunk.get(slot + COUNTS + column) & 0xFF;
+	}
+
+	@Override
+	boolean isWide(int column) {
+		return wideColumns[column];
+	}
+
+	@Override
+	long getNumericUniqueKey(int row) {
+		checkRow(row);
+		return chunkOf(row).getLong(offsetOf(row) + UNIQUE_KEY);
+	}
+
+	@Override
+	String getUniqueKeyText(int row) {
+		checkRow(row);
+		if ((chunkOf(row).get(offsetOf(row) + FLAGS) & KEY_TEXT) == 0)
+			return null;
+		return uniqueKeyTexts.get(row);
+	}
+}
@@ -0,0 +1,489 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PipelinedCollisionReader loads a collision data file into a CollisionList object
+ * in three stages that run at the same time:
+ *   the reader stage reads the file and splits it into batches of lines,
+ *   several parser stages tokenize the lines and create Collision objects,
+ *   the aggregator stage (the calling thread) adds the collisions to the list.
+ * The stages are linked by bounded queues, so a stage that is faster than the next
+ * one blocks instead of filling the memory. The batches are added to the list in
+ * the order in which they appear in the file, so the resulting CollisionList is the
+ * same as the one built by reading the file line by line. A ConcurrentCollisionList 
+ * is instead filled directly by the parser stages and the aggregator stage only 
+ * waits for them to finish.
+ * The time every stage spent working and waiting for the other stages is recorded,
+ * see getStats(), which shows the stage that limits the speed of the loading.
+ * @author Aaron Walker
+ *
+ */
+public class PipelinedCollisionReader {
+
+	/** Default number of lines in a batch. */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	/** Default number of batches a queue can hold per parser. */
+	public static final int DEFAULT_BATCHES_PER_PARSER = 4;
+
+	/* number of characters read from the file at once */
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+	/* initial number of characters per line reserved in a batch */
+	private static final int AVERAGE_LINE_LENGTH = 256;
+
+	private final int numOfParsers;
+	private final int batchSize;
+	private final int queueCapacity;
+	private final Charset charset;
+
+	private StageStats readerStats;
+	private StageStats parserStats;
+	private StageStats aggregatorStats;
+
+	/**
+	 * Creates a PipelinedCollisionReader that uses one parser per available processor
+	 * and the default batch size.
+	 */
+	public PipelinedCollisionReader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a PipelinedCollisionReader that uses the given number of parsers and
+	 * the default batch size.
+	 * @param numOfParsers number of parser threads
+	 * @throws IllegalArgumentException if numOfParsers is smaller than 1
+	 */
+	public PipelinedCollisionReader(int numOfParsers) throws IllegalArgumentException {
+		this(numOfParsers, DEFAULT_BATCH_SIZE, DEFAULT_BATCHES_PER_PARSER * numOfParsers);
+	}
+
+	/**
+	 * Creates a PipelinedCollisionReader.
+	 * @param numOfParsers number of parser threads
+	 * @param batchSize number of lines passed from the reader to a parser at once
+	 * @param queueCapacity number of batches each of the queues between the stages can hold
+	 * @throws IllegalArgumentException if any of the parameters is smaller than 1
+	 */
+	public PipelinedCollisionReader(int numOfParsers, int batchSize, int queueCapacity)
+			throws IllegalArgumentException {
+		if (numOfParsers < 1)
+			throw new IllegalArgumentException("Error: number of parsers has to be positive. ");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Error: batch size has to be positive. ");
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("Error: queue capacity has to be positive. ");
+		this.numOfParsers = numOfParsers;
+		this.batchSize = batchSize;
+		this.queueCapacity = queueCapacity;
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * Reads all the records from the given file and adds them to the list.
+	 * Lines that do not contain exactly numOfEntries entries are skipped.
+	 * @param file the file to be read
+	 * @param list the CollisionList object to which the records are added
+	 * @param numOfEntries the number of entries a complete line has
+	 * @throws IOException if the file cannot be read
+	 */
+	public void read(File file, CollisionList list, int numOfEntries) throws IOException {
+		CollisionMetrics metrics = list.getMetrics();
+		InputStream bytes = new FileInputStream(file);
+		if (metrics != null)
+			bytes = new CountingInputStream(bytes, metrics);
+		Reader in = new InputStreamReader(bytes, charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE));
+		BlockingQueue<LineBatch> lines = new ArrayBlockingQueue<LineBatch>(queueCapacity);
+		BlockingQueue<CollisionBatch> collisions = new ArrayBlockingQueue<CollisionBatch>(queueCapacity);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		//a concurrent list does not need the batches to be merged by this thread
+		CollisionList target = list instanceof ConcurrentCollisionList ? list : null;
+		readerStats = new StageStats("reader", 1);
+		parserStats = new StageStats(target != null ? "parser+add" : "parser", numOfParsers);
+		aggregatorStats = new StageStats("aggregator", 1);
+
+		ExecutorService pool = Executors.newFixedThreadPool(numOfParsers + 1);
+		try {
+			pool.submit(new LineReader(in, lines, failure, list.getMetrics()));
+			for (int i = 0; i < numOfParsers; i++)
+				pool.submit(new BatchParser(lines, collisions, numOfEntries, target, failure, 
+						list.getMetrics()));
+			aggregate(collisions, list, failure, pool);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Reading of " + file + " was interrupted", ex);
+		}
+		finally {
+			pool.shutdownNow();
+			in.close();
+		}
+
+		Throwable cause = failure.get();
+		if (cause instanceof IOException)
+			throw (IOException) cause;
+		if (cause != null)
+			throw new IOException("Cannot parse " + file, cause);
+	}
+
+	/*
+	 * The aggregator stage: adds the batches of collisions to the list in file order,
+	 * until every parser has finished. Stops the other stages if one of them failed.
+	 */
+	private void aggregate(BlockingQueue<CollisionBatch> collisions, CollisionList list,
+			AtomicReference<Throwable> failure, ExecutorService pool) throws InterruptedException {
+		//batches that arrived before the ones preceding them in the file
+		HashMap<Long, CollisionBatch> pending = new HashMap<Long, CollisionBatch>();
+		long next = 0;
+		int numOfFinished = 0;
+		long start = System.nanoTime();
+		long waitNanos = 0;
+		long numOfRecords = 0;
+
+		while (numOfFinished < numOfParsers) {
+			long waitStart = System.nanoTime();
+			CollisionBatch batch = collisions.take();
+			waitNanos += System.nanoTime() - waitStart;
+			if (batch == CollisionBatch.END) {
+				numOfFinished++;
+				if (failure.get() != null) {
+					//unblock the stages that wait for the failed one
+					pool.shutdownNow();
+					break;
+				}
+				continue;
+			}
+			pending.put(batch.sequence, batch);
+			while ((batch = pending.remove(next)) != null) {
+				for (Collision col : batch.collisions)
+					list.add(col);
+				numOfRecords += batch.collisions.size();
+				next++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		aggregatorStats.add(numOfRecords, elapsed - waitNanos, waitNanos);
+	}
+
+	/**
+	 * Returns the statistics of the stages of the most recent call of read(): the
+	 * number of lines or records every stage processed, the time it spent working and
+	 * the time it spent blocked on the queues. The stage with the lowest throughput
+	 * determines the speed of the whole pipeline, the others spend much of their time
+	 * blocked.
+	 * @return a string containing one line per stage, or an empty string if read()
+	 * has not been called
+	 */
+	public String getStats() {
+		if (readerStats == null)
+			return "";
+		StringBuffer result = new StringBuffer();
+		result.append(String.format("    %-11s %7s %12s %12s %12s %14s%n", "stage", "threads",
+				"items", "busy ms", "blocked ms", "items/s busy"));
+		result.append(readerStats.format());
+		result.append(parserStats.format());
+		result.append(aggregatorStats.format());
+		return result.toString();
+	}
+
+	/*
+	 * Line terminators recognized by java.util.Scanner.nextLine().
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+	}
+
+	/*
+	 * The reader stage: splits the file into batches of lines.
+	 */
+	private class LineReader implements Callable<Void> {
+
+		private final Reader in;
+		private final BlockingQueue<LineBatch> lines;
+		private final AtomicReference<Throwable> failure;
+		private final CollisionMetrics metrics;
+		private long waitNanos;
+
+		LineReader(Reader in, BlockingQueue<LineBatch> lines, AtomicReference<Throwable> failure,
+				CollisionMetrics metrics) {
+			this.in = in;
+			this.lines = lines;
+			this.failure = failure;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public Void call() throws InterruptedException {
+			long start = System.nanoTime();
+			long numOfLines = 0;
+			try {
+				char[] buffer = new char[READ_BUFFER_SIZE];
+				long sequence = 0;
+				LineBatch batch = new LineBatch(sequence++, batchSize);
+				boolean afterCarriageReturn = false;
+				int n;
+				long readStart = metrics == null ? 0 : System.nanoTime();
+				while ((n = in.read(buffer)) > 0) {
+					if (metrics != null)
+						metrics.record(IngestPhase.READ, System.nanoTime() - readStart);
+					for (int i = 0; i < n; i++) {
+						char c = buffer[i];
+						//treat \r\n as a single line terminator
+						if (afterCarriageReturn) {
+							afterCarriageReturn = false;
+							if (c == '\n')
+								continue;
+						}
+						if (isLineTerminator(c)) {
+							batch.endLine();
+							afterCarriageReturn = c == '\r';
+							if (batch.numOfLines == batchSize) {
+								put(batch);
+								numOfLines += batch.numOfLines;
+								batch = new LineBatch(sequence++, batchSize);
+							}
+						}
+						else {
+							batch.append(c);
+						}
+					}
+					if (metrics != null)
+						readStart = System.nanoTime();
+				}
+				//the last line of the file does not have to be terminated
+				if (batch.hasUnterminatedLine())
+					batch.endLine();
+				if (batch.numOfLines > 0) {
+					put(batch);
+					numOfLines += batch.numOfLines;
+				}
+			}
+			catch (Throwable ex) {
+				failure.compareAndSet(null, ex);
+			}
+			finally {
+				for (int i = 0; i < numOfParsers; i++)
+					put(LineBatch.END);
+				long elapsed = System.nanoTime() - start;
+				readerStats.add(numOfLines, elapsed - waitNanos, waitNanos);
+			}
+			return null;
+		}
+
+		private void put(LineBatch batch) throws InterruptedException {
+			long waitStart = System.nanoTime();
+			lines.put(batch);
+			waitNanos += System.nanoTime() - waitStart;
+		}
+	}
+
+	/*
+	 * A parser stage: turns batches of lines into batches of collisions, or adds the
+	 * collisions directly to the target list if it is given.
+	 */
+	private class BatchParser implements Callable<Void> {
+
+		private final BlockingQueue<LineBatch> lines;
+		private final BlockingQueue<CollisionBatch> collisions;
+		private final int numOfEntries;
+		private final CollisionList target;
+		private final AtomicReference<Throwable> failure;
+		private final CollisionMetrics metrics;
+
+		BatchParser(BlockingQueue<LineBatch> lines, BlockingQueue<CollisionBatch> collisions,
+				int numOfEntries, CollisionList target, AtomicReference<Throwable> failure,
+				CollisionMetrics metrics) {
+			this.lines = lines;
+			this.collisions = collisions;
+			this.numOfEntries = numOfEntries;
+			this.target = target;
+			this.failure = failure;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public Void call() throws InterruptedException {
+			long start = System.nanoTime();
+			long waitNanos = 0;
+			long numOfLines = 0;
+			CsvTokenizer words = new CsvTokenizer();
+			try {
+				while (true) {
+					long waitStart = System.nanoTime();
+					LineBatch batch = lines.take();
+					waitNanos += System.nanoTime() - waitStart;
+					if (batch == LineBatch.END)
+						break;
+
+					ArrayList<Collision> parsed = new ArrayList<Collision>(batch.numOfLines);
+					for (int line = 0; line < batch.numOfLines; line++) {
+						int from = line == 0 ? 0 : batch.ends[line - 1];
+						long splitStart = metrics == null ? 0 : System.nanoTime();
+						boolean complete = words.tokenize(batch.text, from, batch.ends[line]) == numOfEntries;
+						if (metrics != null)
+							metrics.lineSplit(System.nanoTime() - splitStart, complete);
+						if (!complete)
+							continue; //skip lines that are not complete
+						//records that cannot be turned into Collision objects are skipped
+						Collision col = Collision.parse(words, metrics);
+						if (col != null)
+							parsed.add(col);
+					}
+					numOfLines += batch.numOfLines;
+					if (target != null) {
+						for (Collision col : parsed)
+							target.add(col);
+						continue;
+					}
+
+					waitStart = System.nanoTime();
+					collisions.put(new CollisionBatch(batch.sequence, parsed));
+					waitNanos += System.nanoTime() - waitStart;
+				}
+			}
+			catch (Throwable ex) {
+				failure.compareAndSet(null, ex);
+			}
+			finally {
+				collisions.put(CollisionBatch.END);
+				long elapsed = System.nanoTime() - start;
+				parserStats.add(numOfLines, elapsed - waitNanos, waitNanos);
+			}
+			return null;
+		}
+	}
+
+	/*
+	 * Consecutive lines of the file. The characters of all lines are stored one after
+	 * another in text, without the line terminators, line i ends at ends[i] and starts
+	 * where line i-1 ends.
+	 */
+	private static class LineBatch {
+
+		/* marks the end of the file */
+		static final LineBatch END = new LineBatch(-1, 0);
+
+		final long sequence;
+		char[] text;
+		int length;
+		final int[] ends;
+		int numOfLines;
+
+		LineBatch(long sequence, int maxNumOfLines) {
+			this.sequence = sequence;
+			this.text = new char[AVERAGE_LINE_LENGTH * maxNumOfLines];
+			this.ends = new int[maxNumOfLines];
+		}
+
+		void append(char c) {
+			if (length == text.length)
+				text = Arrays.copyOf(text, Math.max(16, 2 * text.length));
+			text[length++] = c;
+		}
+
+		void endLine() {
+			ends[numOfLines++] = length;
+		}
+
+		boolean hasUnterminatedLine() {
+			int lineStart = numOfLines == 0 ? 0 : ends[numOfLines - 1];
+			return length > lineStart;
+		}
+	}
+
+	/*
+	 * The collisions parsed from a LineBatch.
+	 */
+	private static class CollisionBatch {
+
+		/* marks the end of the output of one parser */
+		static final CollisionBatch END = new CollisionBatch(-1, null);
+
+		final long sequence;
+		final ArrayList<Collision> collisions;
+
+		CollisionBatch(long sequence, ArrayList<Collision> collisions) {
+			this.sequence = sequence;
+			this.collisions = collisions;
+		}
+	}
+
+	/*
+	 * Counts the bytes read from the file in the metrics.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private final CollisionMetrics metrics;
+
+		CountingInputStream(InputStream in, CollisionMetrics metrics) {
+			super(in);
+			this.metrics = metrics;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0)
+				metrics.bytesRead(1);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0)
+				metrics.bytesRead(n);
+			return n;
+		}
+	}
+
+	/*
+	 * Work done by one stage, summed over the threads of the stage.
+	 */
+	private static class StageStats {
+
+		private final String name;
+		private final int numOfThreads;
+		private long numOfItems;
+		private long busyNanos;
+		private long waitNanos;
+
+		StageStats(String name, int numOfThreads) {
+			this.name = name;
+			this.numOfThreads = numOfThreads;
+		}
+
+		synchronized void add(long items, long busy, long wait) {
+			numOfItems += items;
+			busyNanos += busy;
+			waitNanos += wait;
+		}
+
+		synchronized String format() {
+			//the threads of a stage work at the same time, so the throughput of the
+			//stage is based on the busy time of an average thread
+			double busySeconds = busyNanos / 1e9 / numOfThreads;
+			double throughput = busySeconds > 0 ? numOfItems / busySeconds : 0;
+			return String.format("    %-11s %7d %,12d %,12d %,12d %,14.0f%n", name, numOfThreads,
+					numOfItems, busyNanos / 1000000 / numOfThreads, waitNanos / 1000000 / numOfThreads,
+					throughput);
+		}
+	}
+}
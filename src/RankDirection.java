@@ -0,0 +1,7 @@
+/**
+ * Enumerator used to decide whether a ranking selects the elements with the 
+ * highest or with the lowest values. 
+ * @author Aaron Walker
+ *
+ */
+enum RankDirection { HIGHEST, LOWEST }
@@ -0,0 +1,27 @@
+/**
+ * Enumerator listing the outcomes of turning a line of a collision data file into 
+ * a collision of a CollisionList: added, or the reason why the line was rejected. 
+ * @author Aaron Walker
+ *
+ */
+enum RecordStatus { 
+	VALID("added"), 
+	INCOMPLETE_LINE("incomplete line"), 
+	INVALID_ZIP("invalid zip code"), 
+	INVALID_NUMBER("invalid number"), 
+	DUPLICATE("duplicate unique key");
+
+	private final String description;
+
+	RecordStatus(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * Returns the description of this status used in the metrics. 
+	 * @return the description 
+	 */
+	String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * RecordStore keeps the records of the collisions of a single zip code, indexed by
+ * their row number, the order in which they were added. The fields of a collision
+ * can be read one at a time, so scans that need only some of the fields do not
+ * create Collision objects. CollisionStore keeps the records in arrays on the heap,
+ * OffHeapCollisionStore keeps them in memory outside of the heap.
+ * @author Aaron Walker
+ *
+ */
+abstract class RecordStore {
+
+	/** Index of the persons injured count column. */
+	static final int PERSONS_INJURED = 0;
+	/** Index of the persons killed count column. */
+	static final int PERSONS_KILLED = 1;
+	/** Index of the pedestrians injured count column. */
+	static final int PEDESTRIANS_INJURED = 2;
+	/** Index of the pedestrians killed count column. */
+	static final int PEDESTRIANS_KILLED = 3;
+	/** Index of the cyclists injured count column. */
+	static final int CYCLISTS_INJURED = 4;
+	/** Index of the cyclists killed count column. */
+	static final int CYCLISTS_KILLED = 5;
+	/** Index of the motorists injured count column. */
+	static final int MOTORISTS_INJURED = 6;
+	/** Index of the motorists killed count column. */
+	static final int MOTORISTS_KILLED = 7;
+	/** Number of count columns. */
+	static final int NUM_OF_COUNTS = 8;
+
+	final String zip;
+	final int zipCode;
+
+	/**
+	 * Creates a RecordStore for collisions from the given zip code.
+	 * @param zip the zip code shared by all collisions in this store
+	 */
+	RecordStore(String zip) {
+		this.zip = zip;
+		this.zipCode = Integer.parseInt(zip);
+	}
+
+	/**
+	 * Appends a collision to this store.
+	 * @param col the collision to be stored
+	 */
+	abstract void add(Collision col);
+
+	/**
+	 * Appends all collisions of another store to this store, one by one.
+	 * @param other the store holding the collisions to be appended, it is not modified
+	 * @throws IllegalArgumentException if the other store holds collisions from a
+	 * different zip code
+	 */
+	void addAll(RecordStore other) throws IllegalArgumentException {
+		if (!zip.equals(other.zip))
+			throw new IllegalArgumentException("Error: zip codes are not matching. ");
+		int otherSize = other.size();
+		for (int row = 0; row < otherSize; row++)
+			add(other.get(row));
+	}
+
+	/**
+	 * Returns the number of collisions in this store.
+	 * @return the number of rows
+	 */
+	abstract int size();
+
+	/**
+	 * Creates a Collision object from the given row.
+	 * @param row the row of the collision
+	 * @return the Collision object holding the fields of the row
+	 */
+	Collision get(int row) {
+		return new Collision(getEpochDay(row), getMinuteOfDay(row), getBorough(row), zipCode,
+				getLatitude(row), getLongitude(row), getCount(PERSONS_INJURED, row), getCount(PERSONS_KILLED, row),
+				getCount(PEDESTRIANS_INJURED, row), getCount(PEDESTRIANS_KILLED, row),
+				getCount(CYCLISTS_INJURED, row), getCount(CYCLISTS_KILLED, row),
+				getCount(MOTORISTS_INJURED, row), getCount(MOTORISTS_KILLED, row),
+				getVehicleType1(row), getVehicleType2(row), getNumericUniqueKey(row), getUniqueKeyText(row));
+	}
+
+	/**
+	 * Returns the date of the collision in the given row as an epoch day.
+	 * @param row the row of the collision
+	 * @return the number of days since January 1, 1970, or Collision.NO_DATE
+	 */
+	abstract int getEpochDay(int row);
+
+	/**
+	 * Returns the time of the collision in the given row.
+	 * @param row the row of the collision
+	 * @return the minutes since midnight, or Collision.NO_TIME
+	 */
+	abstract short getMinuteOfDay(int row);
+
+	/**
+	 * Returns the borough of the collision in the given row.
+	 * @param row the row of the collision
+	 * @return the borough
+	 */
+	abstract Borough getBorough(int row);
+
+	/**
+	 * Returns the latitude of the collision in the given row.
+	 * @param row the row of the collision
+	 * @return the latitude, or Collision.NO_LOCATION
+	 */
+	abstract float getLatitude(int row);
+
+	/**
+	 * Returns the longitude of the collision in the given row.
+	 * @param row the row of the collision
+	 * @return the longitude, or Collision.NO_LOCATION
+	 */
+	abstract float getLongitude(int row);
+
+	/**
+	 * Returns the dictionary code of the vehicle 1 of the collision in the given row.
+	 * @param row the row of the collision
+	 * @return the code of vehicleCode1
+	 */
+	abstract short getVehicleType1(int row);
+
+	/**
+	 * Returns the dictionary code of the vehicle 2 of the collision in the given row.
+	 * @param row the row of the collision
+	 * @return the code of vehicleCode2
+	 */
+	abstract short getVehicleType2(int row);
+
+	/**
+	 * Returns one of the counts (injuries or fatalities) of the collision in the given row.
+	 * @param column index of the count column, one of the constants of this class
+	 * @param row the row of the collision
+	 * @return the value of the count
+	 */
+	abstract int getCount(int column, int row);
+
+	/**
+	 * Returns true if one of the count columns holds a value that does not fit in a byte.
+	 * @param column index of the count column, one of the constants of this class
+	 * @return true if the values of the column are written as ints, false if they
+	 * are written as bytes
+	 */
+	abstract boolean isWide(int column);
+
+	/**
+	 * Returns the unique key of the collision in the given row as a number.
+	 * @param row the row of the collision
+	 * @return the uniqueKey, or Collision.NO_KEY if it is empty or kept as text
+	 */
+	abstract long getNumericUniqueKey(int row);
+
+	/**
+	 * Returns the unique key of the collision in the given row if it is not a plain
+	 * number.
+	 * @param row the row of the collision
+	 * @return the uniqueKey, or null if it is empty or kept as a number
+	 */
+	abstract String getUniqueKeyText(int row);
+
+	/*
+	 * Throws IndexOutOfBoundsException unless the given row is a row of this store.
+	 */
+	void checkRow(int row) {
+		if (row < 0 || row >= size())
+			throw new IndexOutOfBoundsException("Error: invalid row " + row);
+	}
+}
@@ -0,0 +1,117 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ReportCache keeps the formatted results of the reports of a CollisionList object,
+ * so a report asked for again before any collision is added costs a map lookup.
+ * The results are keyed by the report, the number of zip codes k (ignored by the
+ * statistics reports) and the borough the report is restricted to, if any.
+ * Every result belongs to a version of the data, the modification count of the list
+ * when its computation started: asking for a newer version discards all results,
+ * results of an older version are neither returned nor stored. When the cache is
+ * full the least recently used result is discarded.
+ * The methods of this class can be called by several threads at the same time.
+ * @author Aaron Walker
+ *
+ */
+class ReportCache {
+
+	private final LinkedHashMap<Key, String> results;
+	private long version;
+
+	/**
+	 * Creates an empty ReportCache.
+	 * @param capacity the largest number of results kept
+	 * @throws IllegalArgumentException if capacity is smaller than 1
+	 */
+	ReportCache ( final int capacity ) throws IllegalArgumentException {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Error: capacity has to be positive. ");
+		//access order, so the eldest entry is the least recently used one
+		results = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Looks up the result of a report.
+	 * @param report the report
+	 * @param k number of zip codes selected by a ranking report
+	 * @param borough the borough the report is restricted to, or null
+	 * @param version the modification count of the list
+	 * @return the result, or null if it is not cached for this version of the data
+	 */
+	synchronized String get ( ReportType report, int k, Borough borough, long version ) {
+		if (!isCurrent(version))
+			return null;
+		return results.get(new Key(report, k, borough));
+	}
+
+	/**
+	 * Stores the result of a report.
+	 * @param report the report
+	 * @param k number of zip codes selected by a ranking report
+	 * @param borough the borough the report is restricted to, or null
+	 * @param version the modification count of the list when the computation of the
+	 * result started
+	 * @param result the formatted result
+	 */
+	synchronized void put ( ReportType report, int k, Borough borough, long version, String result ) {
+		if (isCurrent(version))
+			results.put(new Key(report, k, borough), result);
+	}
+
+	/**
+	 * Returns the number of results kept.
+	 * @return the number of results
+	 */
+	synchronized int size ( ) {
+		return results.size();
+	}
+
+	/*
+	 * Discards the results if the given version is newer than theirs. Returns false if
+	 * the given version is older than the results, whose computation started later.
+	 */
+	private boolean isCurrent ( long version ) {
+		if (version > this.version) {
+			results.clear();
+			this.version = version;
+		}
+		return version == this.version;
+	}
+
+	/*
+	 * The report, k and borough identifying a result.
+	 */
+	private static class Key {
+		final ReportType report;
+		final int k;
+		final Borough borough;
+
+		Key(ReportType report, int k, Borough borough) {
+			this.report = report;
+			//the statistics do not depend on k
+			this.k = report.isRanking() ? k : 0;
+			this.borough = borough;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return report == other.report && k == other.k && borough == other.borough;
+		}
+
+		@Override
+		public int hashCode() {
+			return (report.ordinal() * 31 + k) * 31 + (borough == null ? 0 : borough.ordinal() + 1);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/**
+ * Enumerator listing the reports that CollisionList can compute in a single 
+ * pass over its data. 
+ * @author Aaron Walker
+ *
+ */
+enum ReportType { 
+	MOST_COLLISIONS, LEAST_COLLISIONS, MOST_PERSON_INCIDENTS, MOST_CYCLIST_INCIDENTS, 
+	MOST_PEDESTRIAN_INCIDENTS, MOST_MOTORIST_INCIDENTS, MOST_FATALITIES, 
+	VEHICLE_TYPE_STATS, VEHICLE_TYPE_FREQUENCIES, HOURLY_STATS;
+
+	/**
+	 * Returns the name of this report used in the metrics. 
+	 * @return the name in lower case, with spaces between the words 
+	 */
+	String getName() {
+		return name().toLowerCase().replace('_', ' ');
+	}
+
+	/**
+	 * Returns true if this report ranks zip codes. 
+	 * @return true for the ranking reports, false for the statistics reports
+	 */
+	boolean isRanking() {
+		return this != VEHICLE_TYPE_STATS && this != VEHICLE_TYPE_FREQUENCIES 
+				&& this != HOURLY_STATS;
+	}
+}
@@ -0,0 +1,328 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * SpatialGrid indexes the locations of collisions in a uniform grid of square cells
+ * (in degrees) covering an area given by its bounds, by default the area of NYC.
+ * Every cell keeps the number of collisions located in it together with their
+ * latitudes and longitudes, so a query visits only the cells it touches: the cells
+ * lying completely within the queried area contribute their counts, only the
+ * locations of the cells on its boundary are compared with the area. The cost of a
+ * query does not grow with the number of collisions outside of those cells.
+ * Collisions without a location or located outside of the bounds of the grid are
+ * counted, but not indexed.
+ * @author Aaron Walker
+ *
+ */
+class SpatialGrid {
+
+	/** Southern bound of the default grid. */
+	static final double NYC_MIN_LATITUDE = 40.45;
+	/** Northern bound of the default grid. */
+	static final double NYC_MAX_LATITUDE = 40.95;
+	/** Western bound of the default grid. */
+	static final double NYC_MIN_LONGITUDE = -74.30;
+	/** Eastern bound of the default grid. */
+	static final double NYC_MAX_LONGITUDE = -73.65;
+	/** Default length of the side of a cell in degrees, about 550 m of latitude. */
+	static final double DEFAULT_CELL_DEGREES = 0.005;
+
+	/* mean radius of the Earth in meters */
+	private static final double EARTH_RADIUS = 6371008.8;
+	private static final int INITIAL_CELL_CAPACITY = 4;
+
+	private final double minLatitude;
+	private final double minLongitude;
+	private final double cellDegrees;
+	private final int numOfRows;
+	private final int numOfColumns;
+
+	/* counts[cell] is the number of collisions located in the cell */
+	private final int [] counts;
+	/* the locations of the collisions of every cell, null for empty cells */
+	private final float [][] latitudes;
+	private final float [][] longitudes;
+	private int numOfUnindexed;
+
+	/**
+	 * Creates an empty grid covering the area of NYC with cells of the default size.
+	 */
+	SpatialGrid ( ) {
+		this(NYC_MIN_LATITUDE, NYC_MIN_LONGITUDE, NYC_MAX_LATITUDE, NYC_MAX_LONGITUDE,
+				DEFAULT_CELL_DEGREES);
+	}
+
+	/**
+	 * Creates an empty grid.
+	 * @param minLatitude southern bound of the grid
+	 * @param minLongitude western bound of the grid
+	 * @param maxLatitude northern bound of the grid
+	 * @param maxLongitude eastern bound of the grid
+	 * @param cellDegrees length of the side of a cell in degrees
+	 * @throws IllegalArgumentException if the bounds are empty or the cell size is
+	 * not positive
+	 */
+	SpatialGrid ( double minLatitude, double minLongitude, double maxLatitude,
+			double maxLongitude, double cellDegrees ) throws IllegalArgumentException {
+		if (!(cellDegrees > 0) || !(maxLatitude > minLatitude) || !(maxLongitude > minLongitude))
+			throw new IllegalArgumentException("Error: invalid grid bounds or cell size. ");
+		this.minLatitude = minLatitude;
+		this.minLongitude = minLongitude;
+		this.cellDegrees = cellDegrees;
+		numOfRows = (int) Math.ceil((maxLatitude - minLatitude) / cellDegrees);
+		numOfColumns = (int) Math.ceil((maxLongitude - minLongitude) / cellDegrees);
+		counts = new int [numOfRows * numOfColumns];
+		latitudes = new float [counts.length][];
+		longitudes = new float [counts.length][];
+	}
+
+	/**
+	 * Adds the location of a collision to this grid.
+	 * @param latitude the latitude, or Collision.NO_LOCATION
+	 * @param longitude the longitude, or Collision.NO_LOCATION
+	 * @return true if the location was indexed, false if it is missing or lies
+	 * outside of the bounds of this grid
+	 */
+	boolean add ( float latitude, float longitude ) {
+		int row = rowOf(latitude);
+		int column = columnOf(longitude);
+		if (row < 0 || row >= numOfRows || column < 0 || column >= numOfColumns) {
+			numOfUnindexed++;
+			return false;
+		}
+		int cell = row * numOfColumns + column;
+		int size = counts[cell];
+		if (latitudes[cell] == null) {
+			latitudes[cell] = new float [INITIAL_CELL_CAPACITY];
+			longitudes[cell] = new float [INITIAL_CELL_CAPACITY];
+		}
+		else if (size == latitudes[cell].length) {
+			int capacity = Math.max(size + 1, size + (size >> 1));
+			latitudes[cell] = Arrays.copyOf(latitudes[cell], capacity);
+			longitudes[cell] = Arrays.copyOf(longitudes[cell], capacity);
+		}
+		latitudes[cell][size] = latitude;
+		longitudes[cell][size] = longitude;
+		counts[cell]++;
+		return true;
+	}
+
+	/**
+	 * Adds the locations indexed by another grid with the same bounds and cell size
+	 * to this grid.
+	 * @param other the other grid, it is not modified
+	 * @throws IllegalArgumentException if the grids do not have the same cells
+	 */
+	void addAll ( SpatialGrid other ) throws IllegalArgumentException {
+		if (other.minLatitude != minLatitude || other.minLongitude != minLongitude
+				|| other.cellDegrees != cellDegrees || other.counts.length != counts.length)
+			throw new IllegalArgumentException("Error: grids are not matching. ");
+		for (int cell = 0; cell < counts.length; cell++) {
+			int otherSize = other.counts[cell];
+			if (otherSize == 0)
+				continue;
+			int size = counts[cell];
+			if (latitudes[cell] == null || size + otherSize > latitudes[cell].length) {
+				//leave room for the locations added later, as add() does
+				int required = size + otherSize;
+				int capacity = Math.max(INITIAL_CELL_CAPACITY, required + (required >> 1));
+				latitudes[cell] = latitudes[cell] == null ? new float [capacity]
+						: Arrays.copyOf(latitudes[cell], capacity);
+				longitudes[cell] = longitudes[cell] == null ? new float [capacity]
+						: Arrays.copyOf(longitudes[cell], capacity);
+			}
+			System.arraycopy(other.latitudes[cell], 0, latitudes[cell], size, otherSize);
+			System.arraycopy(other.longitudes[cell], 0, longitudes[cell], size, otherSize);
+			counts[cell] += otherSize;
+		}
+		numOfUnindexed += other.numOfUnindexed;
+	}
+
+	/*
+	 * Returns the row of the given latitude, may be outside of the grid. NaN is
+	 * mapped to -1.
+	 */
+	private int rowOf ( double latitude ) {
+		double row = Math.floor((latitude - minLatitude) / cellDegrees);
+		return row >= 0 ? (int) Math.min(row, Integer.MAX_VALUE) : -1;
+	}
+
+	/*
+	 * Returns the column of the given longitude, may be outside of the grid. NaN is
+	 * mapped to -1.
+	 */
+	private int columnOf ( double longitude ) {
+		double column = Math.floor((longitude - minLongitude) / cellDegrees);
+		return column >= 0 ? (int) Math.min(column, Integer.MAX_VALUE) : -1;
+	}
+
+	/**
+	 * Returns the number of collisions that were added to this grid without being
+	 * indexed, because their location is missing or lies outside of the grid.
+	 * @return the number of collisions not taken into account by the queries
+	 */
+	int getNumOfUnindexed ( ) {
+		return numOfUnindexed;
+	}
+
+	/**
+	 * Counts the collisions located within the given bounds, the bounds included.
+	 * @param minLat southern bound
+	 * @param minLon western bound
+	 * @param maxLat northern bound
+	 * @param maxLon eastern bound
+	 * @return the number of collisions
+	 */
+	int countInBox ( double minLat, double minLon, double maxLat, double maxLon ) {
+		int firstRow = Math.max(0, rowOf(minLat));
+		int lastRow = Math.min(numOfRows - 1, rowOf(maxLat));
+		int firstColumn = Math.max(0, columnOf(minLon));
+		int lastColumn = Math.min(numOfColumns - 1, columnOf(maxLon));
+
+		int result = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			double south = minLatitude + row * cellDegrees;
+			double north = south + cellDegrees;
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * numOfColumns + column;
+				if (counts[cell] == 0)
+					continue;
+				double west = minLongitude + column * cellDegrees;
+				double east = west + cellDegrees;
+				if (south >= minLat && north <= maxLat && west >= minLon && east <= maxLon) {
+					result += counts[cell];
+					continue;
+				}
+				//a cell on the boundary of the box
+				float [] cellLatitudes = latitudes[cell];
+				float [] cellLongitudes = longitudes[cell];
+				for (int i = 0; i < counts[cell]; i++) {
+					if (cellLatitudes[i] >= minLat && cellLatitudes[i] <= maxLat
+							&& cellLongitudes[i] >= minLon && cellLongitudes[i] <= maxLon)
+						result++;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the collisions located at most the given distance from a point. The
+	 * distance is measured along the surface of the Earth.
+	 * @param latitude latitude of the point
+	 * @param longitude longitude of the point
+	 * @param meters the distance in meters
+	 * @return the number of collisions
+	 */
+	int countWithin ( double latitude, double longitude, double meters ) {
+		if (!(meters >= 0))
+			return 0;
+		//the bounds of the circle
+		double angle = meters / EARTH_RADIUS;
+		double latitudeDegrees = Math.toDegrees(angle);
+		double sine = Math.sin(Math.min(angle, Math.PI / 2)) / Math.cos(Math.toRadians(latitude));
+		double longitudeDegrees = sine >= 1 ? 180 : Math.toDegrees(Math.asin(sine));
+		int firstRow = Math.max(0, rowOf(latitude - latitudeDegrees));
+		int lastRow = Math.min(numOfRows - 1, rowOf(latitude + latitudeDegrees));
+		int firstColumn = Math.max(0, columnOf(longitude - longitudeDegrees));
+		int lastColumn = Math.min(numOfColumns - 1, columnOf(longitude + longitudeDegrees));
+
+		int result = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			double south = minLatitude + row * cellDegrees;
+			double north = south + cellDegrees;
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * numOfColumns + column;
+				if (counts[cell] == 0)
+					continue;
+				double west = minLongitude + column * cellDegrees;
+				double east = west + cellDegrees;
+				if (distance(latitude, longitude, south, west) <= meters
+						&& distance(latitude, longitude, south, east) <= meters
+						&& distance(latitude, longitude, north, west) <= meters
+						&& distance(latitude, longitude, north, east) <= meters) {
+					//all corners, and so the whole cell, are within the circle
+					result += counts[cell];
+					continue;
+				}
+				float [] cellLatitudes = latitudes[cell];
+				float [] cellLongitudes = longitudes[cell];
+				for (int i = 0; i < counts[cell]; i++) {
+					if (distance(latitude, longitude, cellLatitudes[i], cellLongitudes[i]) <= meters)
+						result++;
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Computes the distance in meters between two points with the haversine formula.
+	 */
+	private static double distance ( double lat1, double lon1, double lat2, double lon2 ) {
+		double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+		double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+		double a = sinLat * sinLat
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	/**
+	 * Returns the number of cells of this grid.
+	 * @return the number of cells
+	 */
+	int getNumOfCells ( ) {
+		return counts.length;
+	}
+
+	/**
+	 * Adds the number of collisions of every cell of this grid to the given totals,
+	 * which belong to a grid with the same bounds and cell size.
+	 * @param totals the totals, indexed by cell
+	 */
+	void addCountsTo ( int [] totals ) {
+		for (int cell = 0; cell < counts.length; cell++)
+			totals[cell] += counts[cell];
+	}
+
+	/**
+	 * Determines k cells with the most collisions.
+	 * @param k number of cells
+	 * @return a string formatted as
+	 *     latitude,longitude  numOfCollisions
+	 *  one per line, with the coordinates of the center of each of the k cells with
+	 *  the most collisions
+	 */
+	String getDensestCells ( int k ) {
+		return formatDensestCells(counts, k);
+	}
+
+	/**
+	 * Determines k cells with the most collisions, given the number of collisions of
+	 * every cell of a grid with the same bounds and cell size as this grid.
+	 * @param cellCounts the number of collisions of every cell
+	 * @param k number of cells
+	 * @return a string formatted as by getDensestCells()
+	 */
+	String formatDensestCells ( final int [] cellCounts, int k ) {
+		TopK<Integer> densest = new TopK<Integer>(k, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer arg0, Integer arg1) {
+				return cellCounts[arg0] - cellCounts[arg1];
+			}
+		}, RankDirection.HIGHEST);
+		for (int cell = 0; cell < cellCounts.length; cell++) {
+			if (cellCounts[cell] > 0)
+				densest.offer(cell);
+		}
+
+		StringBuffer result = new StringBuffer();
+		for (int cell : densest.getResult()) {
+			double latitude = minLatitude + (cell / numOfColumns + 0.5) * cellDegrees;
+			double longitude = minLongitude + (cell % numOfColumns + 0.5) * cellDegrees;
+			result.append(String.format("    %8.4f,%9.4f  %5d collisions\n", latitude, longitude,
+					cellCounts[cell]));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * TimeHistogram counts collisions by the time of day at which they occurred. The
+ * day is divided into bins of equal length, the length of a bin is given in minutes
+ * and has to divide the number of minutes in a day, so bins of 1 hour, 15 minutes
+ * or 1 minute can be used. Times are given as minutes since midnight, the way they
+ * are stored by Collision objects.
+ * @author Aaron Walker
+ *
+ */
+public class TimeHistogram {
+
+	/** Number of minutes in a day. */
+	public static final int MINUTES_PER_DAY = 24 * 60;
+	/** Average number of bars printed per bin in the visual representation. */
+	private static final int BARS_PER_BIN = 10;
+
+	private final int binMinutes;
+	private final int [] counts;
+
+	/**
+	 * Creates an empty histogram with bins of the given length.
+	 * @param binMinutes the length of a bin in minutes
+	 * @throws IllegalArgumentException if binMinutes is not positive or does not
+	 * divide the number of minutes in a day
+	 */
+	public TimeHistogram ( int binMinutes ) throws IllegalArgumentException {
+		if (binMinutes <= 0 || MINUTES_PER_DAY % binMinutes != 0)
+			throw new IllegalArgumentException("Error: bin length has to divide " + MINUTES_PER_DAY + " minutes. ");
+		this.binMinutes = binMinutes;
+		this.counts = new int [MINUTES_PER_DAY / binMinutes];
+	}
+
+	/**
+	 * Counts a collision that occurred at the given time. Times outside of the day
+	 * (such as Collision.NO_TIME) are ignored.
+	 * @param minuteOfDay the time as minutes since midnight
+	 */
+	public void add ( int minuteOfDay ) {
+		if (minuteOfDay >= 0 && minuteOfDay < MINUTES_PER_DAY)
+			counts[minuteOfDay / binMinutes]++;
+	}
+
+	/**
+	 * Counts several collisions that occurred at the given time. Times outside of 
+	 * the day are ignored.
+	 * @param minuteOfDay the time as minutes since midnight
+	 * @param count the number of collisions
+	 */
+	public void add ( int minuteOfDay, int count ) {
+		if (minuteOfDay >= 0 && minuteOfDay < MINUTES_PER_DAY)
+			counts[minuteOfDay / binMinutes] += count;
+	}
+
+	/**
+	 * Adds all the counts of another histogram to this histogram. The bins of the
+	 * other histogram have to be at least as fine as the bins of this histogram.
+	 * @param other the histogram to be added
+	 * @throws IllegalArgumentException if the bin length of this histogram is not 
+	 * a multiple of the bin length of the other histogram
+	 */
+	public void addAll ( TimeHistogram other ) throws IllegalArgumentException {
+		if (binMinutes % other.binMinutes != 0)
+			throw new IllegalArgumentException("Error: bins of " + other.binMinutes 
+					+ " minutes cannot be added to bins of " + binMinutes + " minutes. ");
+		for (int i = 0; i < other.counts.length; i++)
+			counts[i * other.binMinutes / binMinutes] += other.counts[i];
+	}
+
+	/**
+	 * Returns the length of a bin.
+	 * @return the length of a bin in minutes
+	 */
+	public int getBinMinutes ( ) {
+		return binMinutes;
+	}
+
+	/**
+	 * Returns the number of bins of this histogram.
+	 * @return the number of bins
+	 */
+	public int getNumOfBins ( ) {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the number of collisions counted in the given bin.
+	 * @param bin index of the bin, bin i starts at i*getBinMinutes() minutes after midnight
+	 * @return the count
+	 */
+	public int getCount ( int bin ) {
+		return counts[bin];
+	}
+
+	/**
+	 * Formats this histogram as fractions of the given total number of collisions,
+	 * one bin per line followed by a bar for visual representation. Hourly bins are
+	 * labeled with the hour, other bins with their starting time.
+	 * @param totalNumOfCollisions the number of collisions the fractions are computed of
+	 * @return a string containing the formatted histogram
+	 */
+	public String format ( int totalNumOfCollisions ) {
+		StringBuffer result = new StringBuffer() ;
+		StringBuffer bar;
+
+		for (int i = 0; i < counts.length; i++ ) {
+			//determine number of "bars" to be printed for visual representation of
+			//the histogram
+			int numOfBars = (int)(((double)counts[i]/totalNumOfCollisions) * BARS_PER_BIN * counts.length);
+			bar = new StringBuffer(numOfBars);
+			for (int j = 0; j < numOfBars; j++)
+				bar.append("|");
+			if (binMinutes == 60) {
+				result.append(String.format("%3d h  %5.1f%% %s%n",
+						i, 100.0*counts[i]/totalNumOfCollisions, bar.toString() ));
+			}
+			else {
+				int start = i * binMinutes;
+				result.append(String.format("%02d:%02d  %6.2f%% %s%n", start / 60, start % 60,
+						100.0*counts[i]/totalNumOfCollisions, bar.toString() ));
+			}
+		}
+
+		return result.toString();
+	}
+}
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * TopK selects the k elements with the highest (or lowest) values out of a sequence
+ * of elements offered to it one at a time. Elements tied with the k-th element are
+ * kept as well, so the result may contain more than k elements when there are ties.
+ * The elements are ordered by a comparator: two elements are tied when the comparator
+ * considers them equal.
+ * The k best elements are kept in a heap whose head is the worst of them and the
+ * elements tied with the head are kept in a separate list, so offering an element
+ * takes O(log k) time and never requires a scan of the kept elements.
+ * @author Aaron Walker
+ *
+ * @param <T> the type of the ranked elements
+ */
+public class TopK<T> {
+
+	private final int k;
+	//orders elements from the worst to the best
+	private final Comparator<Entry<T>> order;
+	//the k best elements seen so far, the worst of them at the head
+	private final PriorityQueue<Entry<T>> heap;
+	//elements that are not in the heap, but are tied with its head
+	private final ArrayList<Entry<T>> ties;
+	private long numOfOffered;
+
+	/**
+	 * Creates a TopK object that ranks elements by the given comparator.
+	 * @param k the number of elements to be selected
+	 * @param ascending comparator that orders the elements from the lowest to
+	 * the highest value
+	 * @param direction whether the elements with the highest or the lowest
+	 * values are selected
+	 */
+	public TopK(int k, final Comparator<? super T> ascending, RankDirection direction) {
+		this.k = k;
+		final int sign = (direction == RankDirection.HIGHEST) ? 1 : -1;
+		this.order = new Comparator<Entry<T>>() {
+			@Override
+			public int compare(Entry<T> arg0, Entry<T> arg1) {
+				return sign * ascending.compare(arg0.value, arg1.value);
+			}
+		};
+		this.heap = new PriorityQueue<Entry<T>>(Math.max(1, k), order);
+		this.ties = new ArrayList<Entry<T>>();
+	}
+
+	/**
+	 * Creates a TopK object that ranks elements by a numeric metric.
+	 * @param k the number of elements to be selected
+	 * @param metric function computing the value of an element
+	 * @param direction whether the elements with the highest or the lowest
+	 * values are selected
+	 */
+	public TopK(int k, ToLongFunction<? super T> metric, RankDirection direction) {
+		this(k, Comparator.comparingLong(metric), direction);
+	}
+
+	/**
+	 * Offers an element to this TopK object.
+	 * @param element the element to be ranked
+	 */
+	public void offer(T element) {
+		if (k <= 0)
+			return;
+		Entry<T> entry = new Entry<T>(element, numOfOffered++);
+		if (heap.size() < k) {
+			heap.add(entry);
+			return;
+		}
+		int diff = order.compare(entry, heap.peek());
+		if (diff < 0) {
+			return; //worse than all the k best elements
+		}
+		if (diff == 0) {
+			ties.add(entry); //tied with the k-th element
+			return;
+		}
+		Entry<T> evicted = heap.poll();
+		heap.add(entry);
+		if (order.compare(evicted, heap.peek()) == 0) {
+			//still tied with the new k-th element
+			ties.add(evicted);
+		}
+		else {
+			//the new k-th element is better than the old one and all its ties
+			ties.clear();
+		}
+	}
+
+	/**
+	 * Offers all the elements of a collection to this TopK object.
+	 * @param elements the elements to be ranked
+	 */
+	public void offerAll(Iterable<? extends T> elements) {
+		for (T element : elements)
+			offer(element);
+	}
+
+	/**
+	 * Adds the elements selected by another TopK object, as if all the elements offered
+	 * to the other object were offered to this one after the elements already offered
+	 * to this one. The elements the other object has rejected cannot be among the 
+	 * selected ones, so the result is the same as if all the elements had been offered
+	 * to this object in that order. This allows a sequence of elements to be split into
+	 * parts that are ranked separately and merged in the order of the parts.
+	 * @param other a TopK object ranking elements in the same way as this one
+	 */
+	public void addAll(TopK<? extends T> other) {
+		ArrayList<Entry<? extends T>> entries = new ArrayList<Entry<? extends T>>(other.heap);
+		entries.addAll(other.ties);
+		Collections.sort(entries, new Comparator<Entry<? extends T>>() {
+			@Override
+			public int compare(Entry<? extends T> arg0, Entry<? extends T> arg1) {
+				return Long.compare(arg0.sequence, arg1.sequence);
+			}
+		});
+		for (Entry<? extends T> entry : entries)
+			offer(entry.value);
+	}
+
+	/**
+	 * Returns the selected elements ordered from the worst to the best, which is
+	 * the order in which they are printed by the CollisionList reports. Tied
+	 * elements are listed in the order in which they were offered.
+	 * @return the list of the k best elements and all elements tied with the k-th one
+	 */
+	public List<T> getResult() {
+		ArrayList<Entry<T>> entries = new ArrayList<Entry<T>>(heap.size() + ties.size());
+		entries.addAll(heap);
+		entries.addAll(ties);
+		Collections.sort(entries, new Comparator<Entry<T>>() {
+			@Override
+			public int compare(Entry<T> arg0, Entry<T> arg1) {
+				int diff = order.compare(arg0, arg1);
+				if (diff != 0)
+					return diff;
+				return Long.compare(arg0.sequence, arg1.sequence);
+			}
+		});
+
+		ArrayList<T> result = new ArrayList<T>(entries.size());
+		for (Entry<T> entry : entries)
+			result.add(entry.value);
+		return result;
+	}
+
+	/*
+	 * An offered element together with its position in the sequence of offered elements.
+	 */
+	private static class Entry<T> {
+		final T value;
+		final long sequence;
+
+		Entry(T value, long sequence) {
+			this.value = value;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UniqueKeyFilter remembers the unique keys of the collisions added to a CollisionList
+ * so that a collision whose key was already seen, for example a row delivered again
+ * or present in two overlapping data files, can be rejected. The keys are turned into
+ * long values and kept in LongHashSet objects: a plain number, one to 18 digits
+ * without leading zeros, is kept as its numeric value, the same rule as Collision
+ * uses, and any other key as a 64-bit hash of its characters. Keys like "007" and
+ * "7" therefore stay different, and two different keys that are not plain numbers
+ * are treated as the same key with a probability of about one in 2^64 per pair.
+ * Collisions with an empty key are never rejected.
+ * The keys are split into stripes by their hash, each guarded by its own lock, so
+ * several threads can use the same filter.
+ * @author Aaron Walker
+ *
+ */
+class UniqueKeyFilter {
+
+	private final LongHashSet[] stripes;
+	private final AtomicLong numOfDuplicates = new AtomicLong();
+
+	/**
+	 * Creates an empty UniqueKeyFilter.
+	 * @param numOfStripes the number of stripes, more stripes make it less likely
+	 * that two threads wait for each other
+	 * @throws IllegalArgumentException if numOfStripes is smaller than 1
+	 */
+	UniqueKeyFilter ( int numOfStripes ) throws IllegalArgumentException {
+		if (numOfStripes < 1)
+			throw new IllegalArgumentException("Error: number of stripes has to be positive. ");
+		stripes = new LongHashSet[numOfStripes];
+		for (int i = 0; i < numOfStripes; i++)
+			stripes[i] = new LongHashSet();
+	}
+
+	/**
+	 * Records the unique key of a collision.
+	 * @param col the collision
+	 * @return true if the key was not seen before or is empty, false if it is a
+	 * duplicate, which is counted
+	 */
+	boolean add ( Collision col ) {
+		long key = col.getNumericUniqueKey();
+		if (key == Collision.NO_KEY) {
+			String text = col.getUniqueKeyText();
+			if (text == null)
+				return true;
+			key = toLong(text);
+		}
+		LongHashSet stripe = stripeOf(key);
+		boolean added;
+		synchronized (stripe) {
+			added = stripe.add(key);
+		}
+		if (!added)
+			numOfDuplicates.incrementAndGet();
+		return added;
+	}
+
+	/**
+	 * Checks whether this filter and another filter have seen a key in common.
+	 * @param other the other filter
+	 * @return true if one of the keys of the other filter was seen by this filter
+	 */
+	boolean containsAny ( UniqueKeyFilter other ) {
+		for (LongHashSet otherStripe : other.stripes) {
+			long [] keys;
+			synchronized (otherStripe) {
+				keys = otherStripe.values();
+			}
+			for (long key : keys) {
+				LongHashSet stripe = stripeOf(key);
+				synchronized (stripe) {
+					if (stripe.contains(key))
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the keys seen by another filter and its number of duplicates to this filter.
+	 * The filters should not have seen a key in common, see containsAny().
+	 * @param other the other filter, it is not modified
+	 */
+	void addAll ( UniqueKeyFilter other ) {
+		for (LongHashSet otherStripe : other.stripes) {
+			long [] keys;
+			synchronized (otherStripe) {
+				keys = otherStripe.values();
+			}
+			for (long key : keys) {
+				LongHashSet stripe = stripeOf(key);
+				synchronized (stripe) {
+					stripe.add(key);
+				}
+			}
+		}
+		numOfDuplicates.addAndGet(other.getNumOfDuplicates());
+	}
+
+	/**
+	 * Adds to the number of duplicates, for example the duplicates rejected by a list
+	 * merged into the list of this filter.
+	 * @param count the number of duplicates to be added
+	 */
+	void addNumOfDuplicates ( long count ) {
+		numOfDuplicates.addAndGet(count);
+	}
+
+	/**
+	 * Returns the number of keys seen by this filter, not counting the duplicates.
+	 * @return the number of distinct keys
+	 */
+	long size ( ) {
+		long result = 0;
+		for (LongHashSet stripe : stripes) {
+			synchronized (stripe) {
+				result += stripe.size();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of collisions rejected because their key was already seen.
+	 * @return the number of duplicates
+	 */
+	long getNumOfDuplicates ( ) {
+		return numOfDuplicates.get();
+	}
+
+	/*
+	 * Returns the stripe holding the given key.
+	 */
+	private LongHashSet stripeOf ( long key ) {
+		//the high bits, the low bits select the slot within the stripe
+		return stripes[(int) ((LongHashSet.mix(key) >>> 40) % stripes.length)];
+	}
+
+	/*
+	 * Converts a unique key to a long value: its numeric value if it consists of one
+	 * to 18 ASCII digits without a leading zero, otherwise the 64-bit FNV-1a hash of
+	 * its characters with the highest bit set, so it differs from every numeric value.
+	 */
+	static long toLong ( String uniqueKey ) {
+		int length = uniqueKey.length();
+		if (length > 0 && length <= 18 && (uniqueKey.charAt(0) != '0' || length == 1)) {
+			long value = 0;
+			int i = 0;
+			for (; i < length; i++) {
+				char c = uniqueKey.charAt(i);
+				if (c < '0' || c > '9')
+					break;
+				value = value * 10 + (c - '0');
+			}
+			if (i == length)
+				return value;
+		}
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < length; i++) {
+			hash ^= uniqueKey.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash | Long.MIN_VALUE;
+	}
+}
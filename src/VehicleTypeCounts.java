@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ * VehicleTypeCounts counts collisions by the types of the vehicles involved in them.
+ * The counters are indexed by VehicleTypeDictionary codes and grow as new vehicle
+ * types appear. A collision involving two vehicles of the same type is counted once
+ * for that type.
+ * @author Aaron Walker
+ *
+ */
+class VehicleTypeCounts {
+
+	private int [] counts;
+
+	/**
+	 * Creates a VehicleTypeCounts object with all counters set to zero.
+	 */
+	VehicleTypeCounts ( ) {
+		counts = new int [Math.max(16, VehicleTypeDictionary.size())];
+	}
+
+	/**
+	 * Counts a collision involving vehicles of the given types.
+	 * @param type1 the code of the vehicle 1
+	 * @param type2 the code of the vehicle 2
+	 */
+	void add ( short type1, short type2 ) {
+		int max = Math.max(type1, type2);
+		if (max >= counts.length)
+			counts = Arrays.copyOf(counts, Math.max(max + 1, counts.length * 2));
+		counts[type1]++;
+		if (type2 != type1)
+			counts[type2]++;
+	}
+
+	/**
+	 * Adds all the counters of another VehicleTypeCounts object to the counters
+	 * of this object.
+	 * @param other the counts to be added
+	 */
+	void addAll ( VehicleTypeCounts other ) {
+		if (other.counts.length > counts.length)
+			counts = Arrays.copyOf(counts, other.counts.length);
+		for (int code = 0; code < other.counts.length; code++)
+			counts[code] += other.counts[code];
+	}
+
+	/**
+	 * Returns the number of collisions involving the given vehicle type.
+	 * @param code the code of the vehicle type, a negative code stands for a vehicle
+	 * type that was never seen
+	 * @return the number of collisions
+	 */
+	int get ( int code ) {
+		if (code < 0 || code >= counts.length)
+			return 0;
+		return counts[code];
+	}
+
+	/**
+	 * Returns a number larger than any code counted by this object.
+	 * @return the number of counters
+	 */
+	int size ( ) {
+		return counts.length;
+	}
+}
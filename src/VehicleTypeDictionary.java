@@ -0,0 +1,202 @@
+/**
+ * VehicleTypeDictionary assigns a small integer code to every distinct vehicle type
+ * code found in the collision data. Vehicle types are compared ignoring case (the
+ * same way String.equalsIgnoreCase() compares them), so "TAXI" and "taxi" share the
+ * same code. The name of a code is the spelling under which the vehicle type was seen
+ * for the first time.
+ * The dictionary is shared by all CollisionList objects and can be used by several
+ * threads at once: lookups of known vehicle types do not lock, only adding a new
+ * vehicle type does.
+ * @author Aaron Walker
+ *
+ */
+final class VehicleTypeDictionary {
+
+	/** The code of an empty (unspecified) vehicle type. */
+	static final short UNSPECIFIED = 0;
+
+	private static final int MAX_NUM_OF_CODES = Short.MAX_VALUE + 1;
+
+	/* the current table, replaced by a new one whenever a vehicle type is added */
+	private static volatile Table table = new Table(16).with("");
+
+	private VehicleTypeDictionary() {
+	}
+
+	/**
+	 * Returns the code of the given vehicle type, adding the vehicle type to the
+	 * dictionary if it has not been seen before.
+	 * @param name the vehicle type
+	 * @return the code of the vehicle type
+	 */
+	static short codeOf(String name) {
+		int code = table.find(name, 0, name.length());
+		if (code >= 0)
+			return (short) code;
+		return add(name);
+	}
+
+	/**
+	 * Returns the code of the vehicle type stored in the given entry of the tokenizer,
+	 * adding the vehicle type to the dictionary if it has not been seen before. A
+	 * String object is created only for a vehicle type that has not been seen before.
+	 * @param entries the tokenizer holding the vehicle type
+	 * @param entry index of the vehicle type entry
+	 * @return the code of the vehicle type
+	 */
+	static short codeOf(CsvTokenizer entries, int entry) {
+		int code = table.find(entries, entry);
+		if (code >= 0)
+			return (short) code;
+		return add(entries.getEntry(entry));
+	}
+
+	/**
+	 * Returns the code of the given vehicle type without adding it to the dictionary.
+	 * @param name the vehicle type
+	 * @return the code of the vehicle type, or -1 if it has not been seen
+	 */
+	static int lookup(String name) {
+		return table.find(name, 0, name.length());
+	}
+
+	/**
+	 * Returns the name of the vehicle type with the given code.
+	 * @param code the code of the vehicle type
+	 * @return the name of the vehicle type
+	 * @throws IndexOutOfBoundsException if there is no vehicle type with the given code
+	 */
+	static String nameOf(int code) throws IndexOutOfBoundsException {
+		Table current = table;
+		if (code < 0 || code >= current.size)
+			throw new IndexOutOfBoundsException("Error: unknown vehicle type code " + code);
+		return current.names[code];
+	}
+
+	/**
+	 * Returns the number of vehicle types in the dictionary. All codes are smaller
+	 * than this number.
+	 * @return the number of codes
+	 */
+	static int size() {
+		return table.size;
+	}
+
+	private static synchronized short add(String name) {
+		//another thread may have added the vehicle type in the meantime
+		int code = table.find(name, 0, name.length());
+		if (code >= 0)
+			return (short) code;
+		if (table.size == MAX_NUM_OF_CODES)
+			throw new IllegalStateException("Error: too many vehicle types. ");
+		Table newTable = table.with(name);
+		table = newTable;
+		return (short) (newTable.size - 1);
+	}
+
+	/*
+	 * Computes a case insensitive hash code of a character.
+	 */
+	private static int fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/*
+	 * Compares two characters the same way String.equalsIgnoreCase() does.
+	 */
+	private static boolean equalsIgnoreCase(char c1, char c2) {
+		if (c1 == c2)
+			return true;
+		char u1 = Character.toUpperCase(c1);
+		char u2 = Character.toUpperCase(c2);
+		return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+	}
+
+	/*
+	 * An immutable open addressing hash table from vehicle types to codes.
+	 */
+	private static class Table {
+
+		final String[] names;
+		final int size;
+		final int[] slots; //code + 1 of the vehicle type in each slot, 0 for empty slots
+
+		Table(int capacity) {
+			names = new String[0];
+			size = 0;
+			slots = new int[capacity];
+		}
+
+		private Table(String[] names, int size, int[] slots) {
+			this.names = names;
+			this.size = size;
+			this.slots = slots;
+		}
+
+		/* creates a copy of this table with one more vehicle type */
+		Table with(String name) {
+			int capacity = slots.length;
+			while ((size + 1) * 2 > capacity)
+				capacity *= 2;
+			String[] newNames = new String[size + 1];
+			System.arraycopy(names, 0, newNames, 0, size);
+			newNames[size] = name;
+
+			int[] newSlots = new int[capacity];
+			for (int code = 0; code <= size; code++) {
+				String key = newNames[code];
+				int slot = hash(key) & (capacity - 1);
+				while (newSlots[slot] != 0)
+					slot = (slot + 1) & (capacity - 1);
+				newSlots[slot] = code + 1;
+			}
+			return new Table(newNames, size + 1, newSlots);
+		}
+
+		int find(String name, int from, int to) {
+			int h = 0;
+			for (int i = from; i < to; i++)
+				h = 31 * h + fold(name.charAt(i));
+			int mask = slots.length - 1;
+			for (int slot = spread(h) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+				String key = names[slots[slot] - 1];
+				if (key.length() == to - from && key.regionMatches(true, 0, name, from, to - from))
+					return slots[slot] - 1;
+			}
+			return -1;
+		}
+
+		int find(CsvTokenizer entries, int entry) {
+			int length = entries.length(entry);
+			int h = 0;
+			for (int i = 0; i < length; i++)
+				h = 31 * h + fold(entries.charAt(entry, i));
+			int mask = slots.length - 1;
+			for (int slot = spread(h) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+				String key = names[slots[slot] - 1];
+				if (key.length() == length && matches(key, entries, entry, length))
+					return slots[slot] - 1;
+			}
+			return -1;
+		}
+
+		private static boolean matches(String key, CsvTokenizer entries, int entry, int length) {
+			for (int i = 0; i < length; i++) {
+				if (!equalsIgnoreCase(key.charAt(i), entries.charAt(entry, i)))
+					return false;
+			}
+			return true;
+		}
+
+		private static int hash(String key) {
+			int h = 0;
+			for (int i = 0; i < key.length(); i++)
+				h = 31 * h + fold(key.charAt(i));
+			return spread(h);
+		}
+
+		private static int spread(int h) {
+			return h ^ (h >>> 16);
+		}
+	}
+}
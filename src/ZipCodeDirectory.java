@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * ZipCodeDirectory maps zip codes to ZipCodeList objects. Since every valid zip
+ * code consists of exactly five digits, its integer value is used as a direct
+ * index into a table with one slot for every possible zip code, so a lookup is
+ * a single array access. The directory iterates over its ZipCodeList objects in
+ * ascending order of their zip codes.
+ * @author Aaron Walker
+ *
+ */
+class ZipCodeDirectory implements Iterable<ZipCodeList> {
+
+	/** Number of possible five digit zip codes. */
+	static final int NUM_OF_ZIP_CODES = 100000;
+
+	private final ZipCodeList[] table;
+	//zip codes present in the table, kept so that iteration does not visit empty slots
+	private int[] zips;
+	private int size;
+	private boolean sorted;
+
+	/**
+	 * Creates an empty ZipCodeDirectory object.
+	 */
+	ZipCodeDirectory() {
+		table = new ZipCodeList[NUM_OF_ZIP_CODES];
+		zips = new int[64];
+		sorted = true;
+	}
+
+	/**
+	 * Returns the ZipCodeList object for the given zip code.
+	 * @param zip the zip code as an integer
+	 * @return the ZipCodeList object, or null if this directory does not contain
+	 * the zip code
+	 */
+	ZipCodeList get(int zip) {
+		if (zip < 0 || zip >= NUM_OF_ZIP_CODES)
+			return null;
+		return table[zip];
+	}
+
+	/**
+	 * Adds a ZipCodeList object to this directory.
+	 * @param zipList the ZipCodeList object to be added
+	 * @throws IllegalArgumentException if the directory already contains a
+	 * ZipCodeList object with the same zip code
+	 */
+	void put(ZipCodeList zipList) throws IllegalArgumentException {
+		int zip = zipList.getZipCode();
+		if (table[zip] != null)
+			throw new IllegalArgumentException("Error: zip code " + zipList.getZip() + " already present. ");
+		table[zip] = zipList;
+		if (size == zips.length)
+			zips = Arrays.copyOf(zips, size * 2);
+		if (size > 0 && zips[size - 1] > zip)
+			sorted = false;
+		zips[size++] = zip;
+	}
+
+	/**
+	 * Returns the number of zip codes in this directory.
+	 * @return the number of ZipCodeList objects
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns an iterator over the ZipCodeList objects in ascending order of zip codes.
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<ZipCodeList> iterator() {
+		if (!sorted) {
+			Arrays.sort(zips, 0, size);
+			sorted = true;
+		}
+		return new Iterator<ZipCodeList>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public ZipCodeList next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return table[zips[next++]];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
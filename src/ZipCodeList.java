@@ -1,17 +1,26 @@
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 /**
  * ZipCodeList contains collision objects that all occured in the same zip
  * code. It keeps track of additional information like total number of
- * collisions, injuries and fatalities. 
+ * collisions, injuries and fatalities, the number of collisions for every minute
+ * of the day and for every vehicle type. The totals within a range of dates are
+ * computed with an index of the dates, built when it is first needed. The
+ * collisions are kept in a RecordStore, a columnar CollisionStore unless an
+ * OffHeapCollisionStore is given, and iterating over a ZipCodeList recreates the
+ * Collision objects one at a time. A ZipCodeList can also be created without a
+ * RecordStore, it then keeps only the totals and counts, which is enough for the
+ * reports of CollisionList, and its memory does not grow with the number of
+ * collisions.
  * @author Aaron Walker and Joanna K. 
  *
  */
 public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeList>{
 
-	private LinkedList<Collision> list;
+	private RecordStore list;
 	private String zip; 
+	private int zipCode;
 	
 	private int totalNumOfCollisions;
 	private int totalNumOfPersonsInjured;
@@ -22,6 +31,11 @@ public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeLis
 	private int totalNumOfPedestriansKilled;
 	private int totalNumOfMotoristsInjured;
 	private int totalNumOfMotoristsKilled;
+	private TimeHistogram collisionsByMinute = new TimeHistogram(1);
+	private VehicleTypeCounts collisionsByVehicleType = new VehicleTypeCounts();
+	private DateIndex dateIndex;
+	//number of collisions reported in each borough, indexed by Borough.ordinal()
+	private int [] collisionsByBorough = new int [Borough.values().length];
 	
 	/**
 	 * Creates a ZipCodeList objects based on the first collision. The 
@@ -30,11 +44,56 @@ public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeLis
 	 * @param col the initial collisions for this ZipCodeList object 
 	 */
 	public ZipCodeList ( Collision col ) { 
-		list = new LinkedList<Collision>();
+		this(col, new CollisionStore(col.getZip()));
+	}
+
+	/*
+	 * Creates a ZipCodeList object based on the first collision, keeping the collisions 
+	 * in the given empty store. If records is null the collisions are not kept, only 
+	 * the totals and counts are updated. 
+	 */
+	ZipCodeList ( Collision col, RecordStore records ) { 
 		zip = col.getZip();
+		zipCode = col.getZipCode();
+		list = records;
 		add(col);
 	}
 	
+	/*
+	 * Creates a ZipCodeList object without any storage for the collisions, for 
+	 * subclasses that keep the collisions and totals in their own structures and 
+	 * override add(), iterator(), records() and the getters of the totals. 
+	 */
+	ZipCodeList ( int zipCode ) {
+		this.zipCode = zipCode;
+		this.zip = String.format("%05d", zipCode);
+	}
+
+	/*
+	 * Creates a ZipCodeList object holding the collisions of an already filled 
+	 * CollisionStore, for example one read from a snapshot file. The totals are 
+	 * computed from the count columns of the store. 
+	 */
+	ZipCodeList ( int zipCode, RecordStore records ) {
+		this.zipCode = zipCode;
+		this.zip = String.format("%05d", zipCode);
+		this.list = records;
+		for (int row = 0; row < records.size(); row++) {
+			totalNumOfCollisions ++;
+			totalNumOfPersonsInjured += records.getCount(CollisionStore.PERSONS_INJURED, row);
+			totalNumOfPersonsKilled += records.getCount(CollisionStore.PERSONS_KILLED, row);
+			totalNumOfCyclistsInjured += records.getCount(CollisionStore.CYCLISTS_INJURED, row);
+			totalNumOfCyclistsKilled += records.getCount(CollisionStore.CYCLISTS_KILLED, row);
+			totalNumOfPedestriansInjured += records.getCount(CollisionStore.PEDESTRIANS_INJURED, row);
+			totalNumOfPedestriansKilled += records.getCount(CollisionStore.PEDESTRIANS_KILLED, row);
+			totalNumOfMotoristsInjured += records.getCount(CollisionStore.MOTORISTS_INJURED, row);
+			totalNumOfMotoristsKilled += records.getCount(CollisionStore.MOTORISTS_KILLED, row);
+			collisionsByMinute.add(records.getMinuteOfDay(row));
+			collisionsByVehicleType.add(records.getVehicleType1(row), records.getVehicleType2(row));
+			collisionsByBorough[records.getBorough(row).ordinal()]++;
+		}
+	}
+	
 	/**
 	 * Adds another Collision object to this ZipCodeList object. 
 	 * @param col a Collision object to be added to this ZipCodeList object 
@@ -43,10 +102,11 @@ public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeLis
 	 */
 	public ZipCodeList add (Collision col) throws IllegalArgumentException {
 		if (col == null ) return this;
-		if (!col.getZip().equals(zip))
+		if (col.getZipCode() != zipCode)
 			throw new IllegalArgumentException ("Error: zip codes are not matching. ") ;
 		
-		list.add(col);
+		if (list != null) 
+			list.add(col);
 		
 		totalNumOfCollisions ++;
 		totalNumOfPersonsInjured += col.getPersonsInjured();
@@ -57,17 +117,81 @@ public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeLis
 		totalNumOfPedestriansKilled += col.getPedestriansKilled();
 		totalNumOfMotoristsInjured += col.getMotoristsInjured();
 		totalNumOfMotoristsKilled += col.getMotoristsKilled();
+		collisionsByMinute.add(col.getMinuteOfDay());
+		collisionsByVehicleType.add(col.getVehicleType1(), col.getVehicleType2());
+		collisionsByBorough[col.getBoroughValue().ordinal()]++;
 		
 		return this;
 	}
 
+	/*
+	 * Adds the collisions and totals of another ZipCodeList object of the same zip 
+	 * code to this object. The collisions of the other object follow the collisions 
+	 * of this object. Both objects have to keep their collisions, or neither. 
+	 */
+	void addAll (ZipCodeList other) throws IllegalArgumentException {
+		if (other.zipCode != zipCode)
+			throw new IllegalArgumentException ("Error: zip codes are not matching. ") ;
+		if (list != null) 
+			list.addAll(other.records());
+		else if (other.list != null) 
+			throw new IllegalArgumentException ("Error: cannot add the collisions of " + zip + " to a list that does not keep them. ");
+
+		totalNumOfCollisions += other.getTotalNumOfCollisions();
+		totalNumOfPersonsInjured += other.getTotalNumOfPersonsInjured();
+		totalNumOfPersonsKilled += other.getTotalNumOfPersonsKilled();
+		totalNumOfCyclistsInjured += other.getTotalNumOfCyclistsInjured();
+		totalNumOfCyclistsKilled += other.getTotalNumOfCyclistsKilled();
+		totalNumOfPedestriansInjured += other.getTotalNumOfPedestriansInjured();
+		totalNumOfPedestriansKilled += other.getTotalNumOfPedestriansKilled();
+		totalNumOfMotoristsInjured += other.getTotalNumOfMotoristsInjured();
+		totalNumOfMotoristsKilled += other.getTotalNumOfMotoristsKilled();
+		collisionsByMinute.addAll(other.getCollisionsByMinute());
+		collisionsByVehicleType.addAll(other.getCollisionsByVehicleType());
+		int [] otherByBorough = other.getCollisionsByBorough();
+		for (int i = 0; i < collisionsByBorough.length; i++) 
+			collisionsByBorough[i] += otherByBorough[i];
+	}
+
 	/**
 	 * Returns an iterator for this ZipCodeList object. 
+	 * @throws UnsupportedOperationException if this ZipCodeList object does not keep 
+	 * its collisions 
 	 * @see java.lang.Iterable#iterator()
 	 */
 	@Override
-	public Iterator<Collision> iterator() {
-		return list.iterator();
+	public Iterator<Collision> iterator() throws UnsupportedOperationException {
+		final RecordStore list = records();
+		return new Iterator<Collision>() {
+			private int row = 0;
+
+			@Override
+			public boolean hasNext() {
+				return row < list.size();
+			}
+
+			@Override
+			public Collision next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return list.get(row++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/*
+	 * Returns the columnar store holding the collisions of this ZipCodeList object.
+	 * Used by CollisionList to scan individual fields without creating Collision objects. 
+	 */
+	RecordStore records() throws UnsupportedOperationException {
+		if (list == null) 
+			throw new UnsupportedOperationException("Error: the collisions of " + zip + " are not kept. ");
+		return list;
 	}
 
 
@@ -128,6 +252,14 @@ public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeLis
 		return zip;
 	}
 
+	/**
+	 * Returns the zip code of this ZipCodeList object as an integer 
+	 * @return the zipCode
+	 */
+	public int getZipCode() {
+		return zipCode;
+	}
+
 
 	/**
 	 * Returns the total number of collisions of this ZipCodeList object 
@@ -201,16 +333,97 @@ public class ZipCodeList  implements Iterable <Collision>, Comparable<ZipCodeLis
 		return totalNumOfMotoristsKilled;
 	}
 
+	/*
+	 * Returns the number of collisions of this ZipCodeList object for every minute 
+	 * of the day. The histogram is updated as collisions are added. 
+	 */
+	TimeHistogram getCollisionsByMinute() {
+		return collisionsByMinute;
+	}
+
+	/*
+	 * Returns the number of collisions of this ZipCodeList object for every vehicle 
+	 * type. The counts are updated as collisions are added. 
+	 */
+	VehicleTypeCounts getCollisionsByVehicleType() {
+		return collisionsByVehicleType;
+	}
+
+	/*
+	 * Returns the number of collisions of this ZipCodeList object reported in each 
+	 * borough, indexed by Borough.ordinal(). 
+	 */
+	int [] getCollisionsByBorough() {
+		return collisionsByBorough;
+	}
+
+	/**
+	 * Returns the borough of this zip code: the borough reported by most of its 
+	 * collisions. Collisions without a known borough are not taken into account. 
+	 * @return the borough, or UNKNOWN if none of the collisions reports a known borough 
+	 */
+	Borough getBorough() {
+		int [] counts = getCollisionsByBorough();
+		Borough result = Borough.UNKNOWN;
+		int most = 0;
+		for (Borough borough : Borough.values()) {
+			if (borough != Borough.UNKNOWN && counts[borough.ordinal()] > most) {
+				most = counts[borough.ordinal()];
+				result = borough;
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the date index of the collisions of this ZipCodeList object. The index 
+	 * is built when it is first needed and rebuilt when collisions have been added 
+	 * since it was built. 
+	 */
+	DateIndex getDateIndex() {
+		DateIndex index = dateIndex;
+		if (index == null || index.size() != getTotalNumOfCollisions()) {
+			index = new DateIndex(records());
+			dateIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Computes the totals of the collisions of this ZipCodeList object that occurred 
+	 * between the given days. Collisions without a valid date are not counted. 
+	 * @param fromDay the first day of the range, as an epoch day (see 
+	 * java.time.LocalDate.toEpochDay()) 
+	 * @param toDay the last day of the range, as an epoch day 
+	 * @return the totals of the collisions within the range 
+	 */
+	public DateRangeTotals getTotals(int fromDay, int toDay) {
+		return getDateIndex().getTotals(fromDay, toDay);
+	}
+
+	/**
+	 * Computes the number of collisions of this ZipCodeList object involving the given 
+	 * vehicle type that occurred between the given days. The vehicle type is matched 
+	 * without regard to case. 
+	 * @param vehicleType the name of the vehicle type 
+	 * @param fromDay the first day of the range, as an epoch day 
+	 * @param toDay the last day of the range, as an epoch day 
+	 * @return the number of collisions 
+	 */
+	public int getNumOfCollisions(String vehicleType, int fromDay, int toDay) {
+		return getDateIndex().getNumOfCollisions(VehicleTypeDictionary.lookup(vehicleType), fromDay, toDay);
+	}
+
 	/** 
 	 * Computes and returns a string representation of this ZipCodeList object. 
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
 	public String toString() {
-		return "ZipCodeList for " + zip + ": " + totalNumOfCollisions + ", " + totalNumOfPersonsInjured + ", "
-				+ totalNumOfPersonsKilled + ", " + totalNumOfCyclistsInjured + ", " + totalNumOfCyclistsKilled + ", "
-				+ totalNumOfPedestriansInjured + ", " + totalNumOfPedestriansKilled + ", " + totalNumOfMotoristsInjured
-				+ ", " + totalNumOfMotoristsKilled ;
+		return "ZipCodeList for " + zip + ": " + getTotalNumOfCollisions() + ", " + getTotalNumOfPersonsInjured() + ", "
+				+ getTotalNumOfPersonsKilled() + ", " + getTotalNumOfCyclistsInjured() + ", " + getTotalNumOfCyclistsKilled() + ", "
+				+ getTotalNumOfPedestriansInjured() + ", " + getTotalNumOfPedestriansKilled() + ", " + getTotalNumOfMotoristsInjured()
+				+ ", " + getTotalNumOfMotoristsKilled() ;
 	}
 	
 	